@@ -0,0 +1,61 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Compares player assignment strategies on the same generated scenarios: how many games each completes, how many passes
+ * through the rooms each needs, and how long each takes.
+ *
+ * Usage: AssignmentComparison [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ */
+public class AssignmentComparison {
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        List<List<String>> scenarios = new ArrayList<>();
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        for(int i = 0; i < count; i++){
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                scenarios.addAll(ScenarioCodec.readMessages(reader));
+            }
+        }
+        System.out.println(String.format(Locale.ROOT,"%-14s %10s %12s %12s %10s %8s","assignment","completed","mean passes","mean rooms","us/game","errors"));
+        report("players order",scenarios,() -> PlayerAssignment.IN_PLAYERS_ORDER);
+        report("reward aware",scenarios,RewardAwareAssignment::new);
+    }
+
+    private static void report(String name, List<List<String>> scenarios, java.util.function.Supplier<PlayerAssignment> assignments){
+        int completed = 0;
+        int errors = 0;
+        long passes = 0;
+        long roomsCompleted = 0;
+        long nanos = 0;
+        for(List<String> lines : scenarios){
+            ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+            GameBot bot = new GameBot(scenario.getRooms(),scenario.getPlayers(),assignments.get());
+            long start = System.nanoTime();
+            try{
+                PlayProgress progress = bot.play(new PlaySession());
+                if(progress.getStatus() == PlayProgress.Status.COMPLETED){
+                    completed++;
+                }
+                passes += progress.getPasses();
+                roomsCompleted += progress.getRoomsCompleted();
+            }catch(RuntimeException e){
+                errors++;
+            }
+            nanos += System.nanoTime() - start;
+        }
+        int played = Math.max(1,scenarios.size() - errors);
+        System.out.println(String.format(Locale.ROOT,"%-14s %10d %12.2f %12.2f %10.1f %8d",name,completed,(double)passes / played,
+                (double)roomsCompleted / played,nanos / 1e3 / scenarios.size(),errors));
+    }
+}
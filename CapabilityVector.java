@@ -0,0 +1,134 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.Arrays;
+
+/**
+ * A flat summary of weapons, per-weapon ammunition and health.
+ * A Room uses it to describe what a player must at least have to kill a monster (and its protectors), and each Player
+ * keeps one describing what it currently has, so hopeless kill attempts can be rejected with a few int comparisons
+ * before the recursive GameBot#canKill check runs.
+ */
+public class CapabilityVector {
+    private long weaponMask;
+    private int[] ammoPerWeapon;
+    private int health;
+
+    public CapabilityVector(){
+        this.ammoPerWeapon = new int[TypeRegistry.getWeaponCount()];
+    }
+
+    /**
+     * @param weapon
+     * @return is the given weapon part of this vector?
+     */
+    public boolean hasWeapon(Weapon weapon){
+        return hasWeapon(weapon.ordinal());
+    }
+
+    /**
+     * @param weapon the weapon's TypeRegistry id
+     * @return is the given weapon part of this vector?
+     */
+    public boolean hasWeapon(int weapon){
+        return (weaponMask & (1L << weapon)) != 0;
+    }
+
+    /**
+     * @param weapon
+     * @return the ammunition for the given weapon
+     */
+    public int getAmmunition(Weapon weapon){
+        return getAmmunition(weapon.ordinal());
+    }
+
+    /**
+     * @param weapon the weapon's TypeRegistry id
+     * @return the ammunition for the given weapon
+     */
+    public int getAmmunition(int weapon){
+        return weapon < ammoPerWeapon.length ? ammoPerWeapon[weapon] : 0;
+    }
+
+    public int getHealth(){
+        return this.health;
+    }
+
+    /**
+     * add the given weapon to the vector, along with the ammunition for it
+     * @param weapon
+     * @param ammunition
+     */
+    protected void setWeapon(Weapon weapon, int ammunition){
+        setWeapon(weapon.ordinal(),ammunition);
+    }
+
+    protected void setWeapon(int weapon, int ammunition){
+        weaponMask |= 1L << weapon;
+        ammoSlots(weapon)[weapon] = ammunition;
+    }
+
+    /**
+     * add the given amount of ammunition for the given weapon, and add the weapon to the vector
+     * @param weapon
+     * @param ammunition
+     */
+    protected void addAmmunition(Weapon weapon, int ammunition){
+        addAmmunition(weapon.ordinal(),ammunition);
+    }
+
+    protected void addAmmunition(int weapon, int ammunition){
+        weaponMask |= 1L << weapon;
+        ammoSlots(weapon)[weapon] += ammunition;
+    }
+
+    /**
+     * take the given weapon, and the ammunition for it, out of the vector
+     * @param weapon
+     */
+    protected void removeWeapon(Weapon weapon){
+        removeWeapon(weapon.ordinal());
+    }
+
+    protected void removeWeapon(int weapon){
+        weaponMask &= ~(1L << weapon);
+        if(weapon < ammoPerWeapon.length){
+            ammoPerWeapon[weapon] = 0;
+        }
+    }
+
+    /**
+     * @param weapon
+     * @return the ammunition array, grown to hold the given weapon if it was registered after this vector was created
+     */
+    private int[] ammoSlots(int weapon){
+        if(weapon >= ammoPerWeapon.length){
+            ammoPerWeapon = Arrays.copyOf(ammoPerWeapon,Math.max(weapon + 1,TypeRegistry.getWeaponCount()));
+        }
+        return ammoPerWeapon;
+    }
+
+    protected void setHealth(int health){
+        this.health = health;
+    }
+
+    /**
+     * Does this vector meet every requirement in the given one? i.e. does it have every weapon the requirement has,
+     * at least as much ammunition for each of them, and at least as much health
+     * @param requirement
+     * @return true if every requirement is met
+     */
+    public boolean covers(CapabilityVector requirement){
+        if((requirement.weaponMask & ~this.weaponMask) != 0 || this.health < requirement.health){
+            return false;
+        }
+        long remaining = requirement.weaponMask;
+        while(remaining != 0){
+            int ordinal = Long.numberOfTrailingZeros(remaining);
+            if(this.ammoPerWeapon[ordinal] < requirement.ammoPerWeapon[ordinal]){
+                return false;
+            }
+            remaining &= remaining - 1;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,195 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Plays the same scenarios through a reference GameEngine and any number of candidate engines, and checks that every candidate
+ * reaches the same outcome and leaves every room, monster and player in the same state as the reference. Also times each engine,
+ * so a faster engine can be compared side by side with the one it would replace.
+ *
+ * Each engine plays its own freshly decoded copy of every scenario. If the reference throws, a candidate must throw the same
+ * kind of exception to match it.
+ *
+ * Usage: DifferentialRunner [--generate count] [--rooms n] [--monsters n] [--players n] [--protectors n] [--wounded n] [--seed n] [engine class name...]
+ * About one monster in every --protectors (4 by default, 0 for none) gets a custom protector, and one in every --wounded
+ * (4 by default, 0 for none) starts out wounded.
+ * Candidate engines are named by class and need a public no-argument constructor. With no candidates, the reference is
+ * compared against a second run of itself, which checks that its results are reproducible.
+ */
+public class DifferentialRunner {
+    private GameEngine reference;
+    private List<GameEngine> candidates;
+
+    public DifferentialRunner(GameEngine reference, List<GameEngine> candidates){
+        this.reference = reference;
+        this.candidates = new ArrayList<>(candidates);
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        Map<String,String> options = new HashMap<>();
+        List<GameEngine> candidates = new ArrayList<>();
+        for(int i = 0; i < args.length; i++){
+            if(args[i].startsWith("--")){
+                options.put(args[i].substring(2),args[++i]);
+            }else{
+                candidates.add((GameEngine)Class.forName(args[i]).getDeclaredConstructor().newInstance());
+            }
+        }
+        if(candidates.isEmpty()){
+            candidates.add(new ReferenceEngine());
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")),Integer.parseInt(options.getOrDefault("protectors","4")),
+                Integer.parseInt(options.getOrDefault("wounded","4")));
+        List<List<String>> scenarios = new ArrayList<>();
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        for(int i = 0; i < count; i++){
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                scenarios.addAll(ScenarioCodec.readMessages(reader));
+            }
+        }
+        Report report = new DifferentialRunner(new ReferenceEngine(),candidates).run(scenarios);
+        System.out.println(report);
+        if(!report.getMismatches().isEmpty()){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param scenarios the lines of each scenario, without their closing END lines
+     * @return the timings of each engine, and every difference between a candidate and the reference
+     */
+    public Report run(List<List<String>> scenarios){
+        List<GameEngine> engines = new ArrayList<>();
+        engines.add(reference);
+        engines.addAll(candidates);
+        long[] nanos = new long[engines.size()];
+        int[] completed = new int[engines.size()];
+        List<String> mismatches = new ArrayList<>();
+        for(int s = 0; s < scenarios.size(); s++){
+            String expected = null;
+            for(int e = 0; e < engines.size(); e++){
+                ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(scenarios.get(s));
+                String outcome;
+                long start = System.nanoTime();
+                try{
+                    boolean success = engines.get(e).play(scenario.getRooms(),scenario.getPlayers());
+                    nanos[e] += System.nanoTime() - start;
+                    if(success){
+                        completed[e]++;
+                    }
+                    outcome = success + "\n" + describe(scenario);
+                }catch(RuntimeException exception){
+                    nanos[e] += System.nanoTime() - start;
+                    outcome = "threw " + exception.getClass().getName();
+                }
+                if(e == 0){
+                    expected = outcome;
+                }else if(!outcome.equals(expected)){
+                    mismatches.add("scenario " + s + ", " + engines.get(e).getName() + ": " + firstDifference(expected,outcome));
+                }
+            }
+        }
+        return new Report(engines,scenarios.size(),nanos,completed,mismatches);
+    }
+
+    /**
+     * @param scenario
+     * @return the state of every room and player, one per line, in the order they are stored.
+     * Monsters are described by their room indexes, which are the same in every copy decoded from a scenario: the indexes of
+     * the dead ones, and the health left by index for the wounded ones.
+     */
+    private static String describe(ScenarioCodec.Scenario scenario){
+        StringBuilder state = new StringBuilder();
+        for(Room room : scenario.getRooms()){
+            List<Integer> dead = new ArrayList<>();
+            SortedMap<Integer,Integer> wounded = new TreeMap<>();
+            for(Monster monster : room.getMonsters()){
+                if(monster.isDead()){
+                    dead.add(room.indexOf(monster));
+                }else if(monster.getRemainingHealth() < TypeRegistry.getAmmunitionCountNeededToKill(monster.getTypeId())){
+                    wounded.put(room.indexOf(monster),monster.getRemainingHealth());
+                }
+            }
+            Collections.sort(dead);
+            state.append("room ").append(room.getName()).append(" completed=").append(room.isCompleted())
+                    .append(" dead=").append(dead).append(" wounded=").append(wounded).append('\n');
+        }
+        for(Player player : scenario.getPlayers()){
+            state.append("player ").append(player.getName()).append(" health=").append(player.getHealth());
+            for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon)){
+                    state.append(' ').append(TypeRegistry.getWeaponName(weapon)).append('=').append(player.getAmmunitionRoundsForWeapon(weapon));
+                }
+            }
+            state.append('\n');
+        }
+        return state.toString();
+    }
+
+    private static String firstDifference(String expected, String actual){
+        String[] expectedLines = expected.split("\n");
+        String[] actualLines = actual.split("\n");
+        for(int i = 0; i < Math.max(expectedLines.length,actualLines.length); i++){
+            String expectedLine = i < expectedLines.length ? expectedLines[i] : "<nothing>";
+            String actualLine = i < actualLines.length ? actualLines[i] : "<nothing>";
+            if(!expectedLine.equals(actualLine)){
+                return "expected [" + expectedLine + "] but got [" + actualLine + "]";
+            }
+        }
+        return "same lines, different text";
+    }
+
+    /**
+     * The result of one differential run
+     */
+    public static class Report {
+        private List<GameEngine> engines;
+        private int scenarios;
+        private long[] nanos;
+        private int[] completed;
+        private List<String> mismatches;
+
+        private Report(List<GameEngine> engines, int scenarios, long[] nanos, int[] completed, List<String> mismatches){
+            this.engines = engines;
+            this.scenarios = scenarios;
+            this.nanos = nanos;
+            this.completed = completed;
+            this.mismatches = mismatches;
+        }
+
+        /**
+         * @return a description of each scenario in which a candidate didn't match the reference
+         */
+        public List<String> getMismatches(){
+            return Collections.unmodifiableList(mismatches);
+        }
+
+        /**
+         * @param engine the engine's position: 0 for the reference, then the candidates in order
+         * @return the total nanoseconds the engine spent playing
+         */
+        public long getNanos(int engine){
+            return nanos[engine];
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT,"%-24s %12s %12s %10s%n","engine","total ms","us/game","completed"));
+            for(int e = 0; e < engines.size(); e++){
+                report.append(String.format(Locale.ROOT,"%-24s %12.1f %12.1f %10d%n",(e == 0 ? "*" : " ") + engines.get(e).getName(),
+                        nanos[e] / 1e6,nanos[e] / 1e3 / scenarios,completed[e]));
+            }
+            report.append(mismatches.size()).append(" mismatches over ").append(scenarios).append(" scenarios\n");
+            for(String mismatch : mismatches.subList(0,Math.min(20,mismatches.size()))){
+                report.append("  ").append(mismatch).append('\n');
+            }
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.*;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Measures how many bytes of heap the game's objects retain - per Monster, per Room, per Player, and per whole world at several
+ * scales - and fails when any of them has grown past a recorded baseline, so changes to how the game is represented are judged
+ * by measurement. Retained size is measured by creating many instances, keeping them reachable, and dividing the growth in
+ * used heap, after forcing collections, by the number of instances.
+ *
+ * Usage: FootprintSuite [--baseline file] [--tolerance fraction] [--record]
+ * With --record, the measurements are written as the new baseline. Otherwise they are compared with the baseline, and the
+ * process exits with status 1 if any measurement is more than the tolerance (0.10 by default) above it.
+ * Measurements depend on the JVM and its settings (e.g. compressed oops), so a baseline should be recorded and checked on the same kind of JVM.
+ */
+public class FootprintSuite {
+    private static final int[] WORLD_ROOMS = {10,100,1000};
+
+    public static void main(String[] args) throws IOException {
+        Path baseline = Paths.get("footprint-baseline.properties");
+        double tolerance = 0.10;
+        boolean record = false;
+        for(int i = 0; i < args.length; i++){
+            switch(args[i]){
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--record":
+                    record = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        Map<String,Long> measurements = measureAll();
+        for(Map.Entry<String,Long> measurement : measurements.entrySet()){
+            System.out.println(measurement.getKey() + ": " + measurement.getValue() + " bytes");
+        }
+        if(record){
+            Properties properties = new Properties();
+            for(Map.Entry<String,Long> measurement : measurements.entrySet()){
+                properties.setProperty(measurement.getKey(),String.valueOf(measurement.getValue()));
+            }
+            try(Writer writer = Files.newBufferedWriter(baseline,StandardCharsets.UTF_8)){
+                properties.store(writer,"Retained heap bytes, recorded by FootprintSuite on Java " + System.getProperty("java.version"));
+            }
+            System.out.println("Recorded baseline in " + baseline);
+            return;
+        }
+        List<String> regressions = compare(measurements,baseline,tolerance);
+        for(String regression : regressions){
+            System.out.println("REGRESSION " + regression);
+        }
+        if(!regressions.isEmpty()){
+            System.exit(1);
+        }
+        System.out.println("All footprints within " + Math.round(tolerance * 100) + "% of " + baseline);
+    }
+
+    /**
+     * @return the retained bytes of each kind of object measured, by name
+     */
+    public static Map<String,Long> measureAll(){
+        Map<String,Long> measurements = new LinkedHashMap<>();
+        measurements.put("monster",measure(100_000,i -> new Monster(MonsterType.values()[i % MonsterType.values().length])));
+        measurements.put("room.4monsters",measure(20_000,i -> newRoom(4)));
+        measurements.put("room.32monsters",measure(5_000,i -> newRoom(32)));
+        RoomTemplate template = RoomTemplate.of(newRoom(32));
+        measurements.put("roomOverlay.32monsters",measure(20_000,i -> template.newOverlay()));
+        measurements.put("player",measure(50_000,i -> newPlayer(i)));
+        for(int rooms : WORLD_ROOMS){
+            ScenarioGenerator generator = new ScenarioGenerator(rooms,rooms,8,4);
+            List<String> scenario;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                scenario = ScenarioCodec.readMessages(reader).get(0);
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            measurements.put("world." + rooms + "rooms",measure(Math.max(2,10_000 / rooms),i -> ScenarioCodec.decodeScenario(scenario)));
+        }
+        return measurements;
+    }
+
+    /**
+     * @param measurements
+     * @param baseline
+     * @param tolerance
+     * @return a description of each measurement more than the tolerance above its baseline
+     * @throws IOException if the baseline can't be read
+     */
+    public static List<String> compare(Map<String,Long> measurements, Path baseline, double tolerance) throws IOException {
+        Properties properties = new Properties();
+        try(Reader reader = Files.newBufferedReader(baseline,StandardCharsets.UTF_8)){
+            properties.load(reader);
+        }
+        List<String> regressions = new ArrayList<>();
+        for(Map.Entry<String,Long> measurement : measurements.entrySet()){
+            String recorded = properties.getProperty(measurement.getKey());
+            if(recorded == null){
+                continue;
+            }
+            long limit = (long)Math.ceil(Long.parseLong(recorded) * (1 + tolerance));
+            if(measurement.getValue() > limit){
+                regressions.add(measurement.getKey() + ": " + measurement.getValue() + " bytes, baseline " + recorded + " bytes");
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * @param count how many instances to create; more gives a steadier average
+     * @param factory creates the i-th instance
+     * @return the average number of heap bytes retained by one instance
+     */
+    private static long measure(int count, IntFunction<Object> factory){
+        //one untimed round first, so class loading and lazily created statics aren't counted
+        factory.apply(0);
+        Object[] instances = new Object[count];
+        long before = usedHeap();
+        for(int i = 0; i < count; i++){
+            instances[i] = factory.apply(i);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(instances);
+        return Math.max(0,(after - before) / count);
+    }
+
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        //keep collecting until used heap stops shrinking
+        for(int i = 0; i < 10; i++){
+            System.gc();
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if(now >= used){
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    private static Room newRoom(int monsters){
+        SortedSet<Monster> roomMonsters = new TreeSet<>();
+        for(int i = 0; i < monsters; i++){
+            roomMonsters.add(new Monster(MonsterType.values()[i % MonsterType.values().length]));
+        }
+        Map<Weapon,Integer> ammo = new HashMap<>();
+        ammo.put(Weapon.PISTOL,6);
+        return new Room(roomMonsters,new HashSet<>(Collections.singleton(Weapon.PISTOL)),ammo,5,"Room");
+    }
+
+    private static Player newPlayer(int i){
+        Player player = new Player("Player " + i,100);
+        for(Weapon weapon : Weapon.values()){
+            player.addWeapon(weapon);
+        }
+        return player;
+    }
+}
@@ -9,21 +9,71 @@ public class GameBot {
     private SortedSet<Room> rooms;
     private SortedSet<Player> players;
     private SortedSet<Monster>monsters;
-    private Set<Room> completedRooms;
-    private Set<Room> uncompletedRooms;
+    /**the completed rooms, by position in the set of rooms*/
+    private BitSet completedRooms;
+    private PlayerWeaponIndex playerWeaponIndex;
+    /**buffers the index fills with the players capable of each kill, reused for every monster*/
+    private BitSet capablePositions;
+    private List<Player> capablePlayers;
+    private Trail trail;
+    private GameEventBus events;
+    private int passes;
+    private long kills;
+    private PlayerAssignment assignment;
 
     /**
      * Create a new "GameBot", i.e. a program that automatically "plays the game"
      * @param rooms the set of rooms in this game
      * @param players the set of players the bot can use to try to complete all rooms
+     * @throws IllegalArgumentException if any of the players is still held by another GameBot; see #releasePlayers
      */
     public GameBot(SortedSet<Room> rooms, SortedSet<Player> players) {
+        this(rooms,players,PlayerAssignment.IN_PLAYERS_ORDER);
+    }
+
+    /**
+     * Create a new "GameBot" that chooses which player kills each monster with the given strategy
+     * @param rooms the set of rooms in this game
+     * @param players the set of players the bot can use to try to complete all rooms
+     * @param assignment decides the order in which players able to kill a monster are asked to kill it
+     * @throws IllegalArgumentException if any of the players is still held by another GameBot; see #releasePlayers
+     */
+    public GameBot(SortedSet<Room> rooms, SortedSet<Player> players, PlayerAssignment assignment) {
+        this.assignment = assignment;
         this.rooms = rooms;
         this.players = players;
         this.monsters = new TreeSet<>();
-        completedRooms = new HashSet<>();
-        uncompletedRooms = new HashSet<>(rooms);
+        completedRooms = new BitSet(rooms.size());
+        playerWeaponIndex = new PlayerWeaponIndex();
+        for(Player player : players){
+            playerWeaponIndex.addPlayer(player);
+        }
+        this.capablePositions = new BitSet();
+        this.capablePlayers = new ArrayList<>();
+    }
+
+    /**
+     * Hand this bot's players back, so another GameBot can be created with them. A player is kept up to date by one bot at a time,
+     * so this bot can no longer play once it has released them.
+     */
+    public void releasePlayers(){
+        if(playerWeaponIndex == null){
+            return;
+        }
+        for(Player player : players){
+            playerWeaponIndex.removePlayer(player);
+        }
+        playerWeaponIndex = null;
+    }
 
+    /**
+     * @throws IllegalStateException if this bot has released its players
+     */
+    private PlayerWeaponIndex index(){
+        if(playerWeaponIndex == null){
+            throw new IllegalStateException("this GameBot has released its players");
+        }
+        return playerWeaponIndex;
     }
 
     /**
@@ -41,17 +91,85 @@ public class GameBot {
      * @return true if all rooms were completed, false if not
      */
     public boolean play() {
+        return play(new PlaySession()).getStatus() == PlayProgress.Status.COMPLETED;
+    }
+
+    /**
+     * Play the game the same way as #play(), but within the time and step budget of the given session, stopping early if the
+     * session is cancelled. Progress is published to the session's subscribers after every room completion and every pass.
+     * If the run stops early, the game is left in the state it had reached, which the returned progress describes.
+     * @param session controls this run; a session can only be used once
+     * @return the progress made when the run stopped
+     * @throws IllegalStateException if the session was already used, or this bot has released its players
+     */
+    public PlayProgress play(PlaySession session) {
+        index();
+        session.begin();
+        int completedRoomsCounter;
+        do{
+            completedRoomsCounter = countCompletedRooms();
+            PlayProgress.Status stoppedBy = passThroughRooms(session);
+            if(stoppedBy != null){
+                return finish(session,stoppedBy);
+            }
+            passes++;
+            if(session.hasSubscribers()){
+                session.publish(getProgress(PlayProgress.Status.RUNNING,session));
+            }
+        }while(countCompletedRooms() > completedRoomsCounter);
+        return finish(session,countCompletedRooms() == rooms.size() ? PlayProgress.Status.COMPLETED : PlayProgress.Status.STUCK);
+    }
 
-        int completedRoomsCounter = getCompletedRooms().size();
-        passThroughRooms();
-        int newCompletedRoomsCounter = getCompletedRooms().size();
+    /**
+     * Play a game whose rooms are kept in a RoomStore, with the same moves as #play(): pass through the rooms in order until a
+     * pass completes no more of them. Each room is loaded for its pass, played by a GameBot over that room alone, and stored back.
+     * @param rooms
+     * @param players the players, asked in the iteration order of this set as a GameBot asks the players of its set
+     * @return true if all rooms were completed, false if not
+     * @throws IllegalArgumentException if any of the players is still held by another GameBot
+     */
+    public static boolean play(RoomStore rooms, SortedSet<Player> players){
+        int completedRoomsCounter;
+        do{
+            completedRoomsCounter = countCompletedRooms(rooms);
+            for(int index = 0; index < rooms.getRoomCount(); index++){
+                //a pass finds nothing to do in a completed room
+                if(!rooms.isCompleted(index)){
+                    Monster[] monsters = new Monster[rooms.getMonsterCount(index)];
+                    Room room = rooms.loadRoom(index,monsters);
+                    SortedSet<Room> loaded = new TreeSet<>();
+                    loaded.add(room);
+                    GameBot bot = new GameBot(loaded,players);
+                    try{
+                        bot.passThroughRoom(room,null);
+                    }finally{
+                        bot.releasePlayers();
+                        rooms.storeRoom(index,monsters,players);
+                    }
+                }
+            }
+        }while(countCompletedRooms(rooms) > completedRoomsCounter);
+        return countCompletedRooms(rooms) == rooms.getRoomCount();
+    }
 
-        while(newCompletedRoomsCounter > completedRoomsCounter){
-            passThroughRooms();
-            completedRoomsCounter = newCompletedRoomsCounter;
-            newCompletedRoomsCounter = getCompletedRooms().size();
+    private static int countCompletedRooms(RoomStore rooms){
+        int completed = 0;
+        for(int room = 0; room < rooms.getRoomCount(); room++){
+            if(rooms.isCompleted(room)){
+                completed++;
+            }
         }
-        return getUncompletedRooms().size() == 0;
+        return completed;
+    }
+
+    private PlayProgress finish(PlaySession session, PlayProgress.Status status){
+        PlayProgress progress = getProgress(status,session);
+        session.finish(progress);
+        return progress;
+    }
+
+    private PlayProgress getProgress(PlayProgress.Status status, PlaySession session){
+        return new PlayProgress(status,passes,countCompletedRooms(),rooms.size(),kills,session.getElapsedNanos());
     }
 
     /**
@@ -60,22 +178,55 @@ public class GameBot {
      */
 
     protected Set<Room> passThroughRooms() {
+        passThroughRooms(null);
+        return getCompletedRooms();
+    }
 
+    /**
+     * @param session the session whose budget each monster considered is a step of, or null to pass through all the rooms
+     * @return why the pass stopped before going through all the rooms, or null if it went through them all
+     */
+    private PlayProgress.Status passThroughRooms(PlaySession session) {
+        PlayProgress.Status stoppedBy = null;
+        assignment.beginPass(getAllRooms());
         for(Room room : getAllRooms()){
-            for(Monster monster : room.getLiveMonstersClone()){
-                for(Player player : players){
-                    boolean ifCanKill = canKill(player, monster, room);
-                     if(ifCanKill){
-                         killMonster(player,room,monster);
-                         reapCompletionRewards(player,room);
-                    }
+            stoppedBy = passThroughRoom(room,session);
+            if(stoppedBy != null){
+                break;
+            }
+        }
+        return stoppedBy;
+    }
+
+    /**
+     * Go through the live monsters of one room, letting the first player that can kill each monster kill it
+     * @param room
+     * @param session the session whose budget each monster considered is a step of, or null to go through every monster
+     * @return why the room was left before going through all its monsters, or null if it went through them all
+     */
+    protected PlayProgress.Status passThroughRoom(Room room, PlaySession session) {
+        boolean wasCompleted = room.isCompleted();
+        for(Monster monster : room.getLiveMonstersClone()){
+            PlayProgress.Status stoppedBy;
+            if(session != null && (stoppedBy = session.takeStep()) != null){
+                return stoppedBy;
+            }
+            //only players who can fire the rounds needed at this monster are worth asking; the index returns them in players order
+            int type = monster.getTypeId();
+            index().getLivePlayersWithWeaponAndAmmunition(TypeRegistry.getWeaponNeededToKill(type),
+                    TypeRegistry.getAmmunitionCountNeededToKill(type),capablePositions,capablePlayers);
+            for(Player player : assignment.order(room,monster,capablePlayers)){
+                boolean ifCanKill = canKill(player, monster, room);
+                 if(ifCanKill){
+                     killMonster(player,room,monster);
+                     reapCompletionRewards(player,room);
                 }
             }
         }
-        for(Room room : getCompletedRooms()){
-            uncompletedRooms.remove(room);
+        if(!wasCompleted && room.isCompleted() && session != null && session.hasSubscribers()){
+            session.publish(getProgress(PlayProgress.Status.RUNNING,session));
         }
-        return getCompletedRooms();
+        return null;
     }
 
     /**
@@ -91,7 +242,14 @@ public class GameBot {
         for(Weapon weapon : ammoWon.keySet()){
             player.addAmmunition(weapon,ammoWon.get(weapon));
         }
+        boolean wasDead = player.isDead();
         player.changeHealth(room.getHealthWonUponCompletion());
+        if(events != null){
+            events.rewardGranted(player,room);
+            if(!wasDead && player.isDead()){
+                events.playerDied(player,room);
+            }
+        }
     }
 
     /**
@@ -108,12 +266,23 @@ public class GameBot {
             killMonsterPrivate(player,room,protectors.last());
         }
 
-        Weapon weapon = monsterToKill.getMonsterType().weaponNeededToKill;
-        int ammo = monsterToKill.getMonsterType().ammunitionCountNeededToKill;
+        int weapon = TypeRegistry.getWeaponNeededToKill(monsterToKill.getTypeId());
+        int ammo = TypeRegistry.getAmmunitionCountNeededToKill(monsterToKill.getTypeId());
         monsterToKill.attack(weapon,ammo);
+        kills++;
+        boolean wasDead = player.isDead();
         player.setHealth(player.getHealth() - room.getPlayerHealthLostPerEncounter());
         room.monsterKilled(monsterToKill);
         player.changeAmmunitionRoundsForWeapon(weapon,-ammo);
+        if(events != null){
+            events.monsterKilled(player,room,monsterToKill,weapon,ammo);
+            if(room.isCompleted()){
+                events.roomCompleted(player,room);
+            }
+            if(!wasDead && player.isDead()){
+                events.playerDied(player,room);
+            }
+        }
     }
     protected void killMonster(Player player, Room room, Monster monsterToKill) {
         //Call getAllProtectorsInRoom to get a sorted set of all the monster's protectors in this room
@@ -126,22 +295,86 @@ public class GameBot {
 
     }
 
+    /**
+     * Attach a trail that every change this bot makes to the game - to monsters, rooms, players and the bot's own record of
+     * completed rooms - is recorded on, so speculative moves can be undone with Trail#rollbackTo(int). Pass null to stop recording.
+     * @param trail
+     */
+    public void setTrail(Trail trail){
+        this.trail = trail;
+        for(Room room : rooms){
+            room.setTrail(trail);
+        }
+        for(Player player : players){
+            player.setTrail(trail);
+        }
+    }
+
+    /**
+     * @return the trail changes to this game are recorded on, or null if none is attached
+     */
+    public Trail getTrail(){
+        return this.trail;
+    }
+
+    /**
+     * Attach a bus that this bot publishes an event on for every kill, room completion, reward and death, for the bus's
+     * listeners to receive on another thread. Pass null to stop publishing.
+     * @param events
+     */
+    public void setEventBus(GameEventBus events){
+        this.events = events;
+    }
+
+    /**
+     * @return the bus events of this game are published on, or null if none is attached
+     */
+    public GameEventBus getEventBus(){
+        return this.events;
+    }
+
     /**
      * @return a set of all the rooms that have been completed
      */
     public Set<Room> getCompletedRooms() {
+        Set<Room> completed = new HashSet<>();
+        int position = 0;
         for(Room room : getAllRooms()){
-            if(room.isCompleted()){
-                completedRooms.add(room);
+            if(isCompleted(room,position++)){
+                completed.add(room);
             }
         }
-        return completedRooms;
+        return completed;
     }
+
     /**
-     * @return a set of all the rooms that have not been completed
+     * @return how many rooms have been completed
      */
-    private Set<Room> getUncompletedRooms(){
-       return uncompletedRooms;
+    private int countCompletedRooms(){
+        int position = 0;
+        for(Room room : getAllRooms()){
+            isCompleted(room,position++);
+        }
+        return completedRooms.cardinality();
+    }
+
+    /**
+     * @param room
+     * @param position the room's position in the set of rooms
+     * @return true if the room is completed, noting it as such if it wasn't before
+     */
+    private boolean isCompleted(Room room, int position){
+        if(completedRooms.get(position)){
+            return true;
+        }
+        if(room.isCompleted()){
+            completedRooms.set(position);
+            if(trail != null){
+                trail.record(() -> completedRooms.clear(position));
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -171,13 +404,7 @@ public class GameBot {
      * @return a sorted set of all the players that have the given wepoan with the given amount of ammunition for it
      */
     protected SortedSet<Player> getLivePlayersWithWeaponAndAmmunition(Weapon weapon, int ammunition) {
-        SortedSet<Player> livePlayersWithWeaponAndAmmunition = new TreeSet<>();
-        for(Player player : getLivePlayers()){
-            if(player.hasWeapon(weapon) && player.getAmmunitionRoundsForWeapon(weapon) >= ammunition){
-                livePlayersWithWeaponAndAmmunition.add(player);
-            }
-        }
-        return livePlayersWithWeaponAndAmmunition;
+        return new TreeSet<>(index().getLivePlayersWithWeaponAndAmmunition(weapon,ammunition));
     }
 
     /**
@@ -193,7 +420,7 @@ public class GameBot {
 
     private static SortedSet<Monster> getAllProtectorsInRoom(SortedSet<Monster> protectors, Monster monster, Room room) {
         for(Monster thisMonster : room.getLiveMonsters()){
-            if(thisMonster.getMonsterType() == monster.getProtectedBy()){
+            if(thisMonster.getTypeId() == monster.getProtectorId()){
                 protectors = getAllProtectorsInRoom(protectors,thisMonster,room);
                 protectors.add(thisMonster);
 
@@ -216,15 +443,17 @@ public class GameBot {
         //Going into the room exposes the player to all the monsters in the room. If the player's health is
         //not > room.getPlayerHealthLostPerEncounter(), you can return immediately.
         //Call the private canKill method, to determine if this player can kill this monster.
-        //Before returning from this method, reset the player's health to what it was before you called the private canKill
-        int playerHealthBeforeCalling = player.getHealth();
+        //The private canKill charges the health lost to a local counter rather than to the player, so the check changes nothing:
+        //no undo entries on an attached trail, and no re-indexing of a player whose health would briefly reach zero
         if(player.getHealth() < room.getPlayerHealthLostPerEncounter()){
             return false;
         }
+        //cheap pre-screen: reject the player if it lacks a weapon, ammunition or health the whole kill chain is known to need
+        if(!player.getCapabilities().covers(room.getKillRequirement(monster))){
+            return false;
+        }
 
-        boolean returnValue = canKill( player, monster, room, new TreeMap<Weapon, Integer>(), new HashSet<Monster>());
-        player.setHealth(playerHealthBeforeCalling);
-        return returnValue;
+        return canKill(player,monster,room,new int[TypeRegistry.getWeaponCount()],new BitSet(),new int[]{player.getHealth()});
     }
 
     /**
@@ -232,10 +461,12 @@ public class GameBot {
      * @param player
      * @param monster
      * @param room
-     * @param roundsUsedPerWeapon
+     * @param roundsUsedPerWeapon the rounds used so far, by TypeRegistry weapon id
+     * @param alreadyMarkedByCanKill the monsters marked so far, by Room#indexOf(Monster)
+     * @param healthLeft the player's health once the monsters marked so far are killed, in its only element
      * @return
      */
-    private static boolean canKill(Player player, Monster monster, Room room, SortedMap<Weapon, Integer> roundsUsedPerWeapon, Set<Monster> alreadyMarkedByCanKill) {
+    private static boolean canKill(Player player, Monster monster, Room room, int[] roundsUsedPerWeapon, BitSet alreadyMarkedByCanKill, int[] healthLeft) {
         //Remove all the monsters already marked / looked at by this series of recursive calls to canKill from the set of liveMonsters
         // in the room before you check if the monster is alive and in the room. Be sure to NOT alter the actual set of live monsters in your Room object!
         //Check if monster is in the room and alive.
@@ -248,54 +479,42 @@ public class GameBot {
         //from his total ammunition the number stored in roundsUsedPerWeapon for the given weapon, if any.
         //add how much ammunition will be used up to kill this monster to roundsUsedPerWeapon
         //Add up the playerHealthLostPerExposure of all the live monsters, and see if when that is subtracted from the player if his health is still > 0. If not, return false.
-        //If health is still > 0, subtract the above total from the player's health
-        //(Note that in the protected canKill method, you must reset the player's health to what it was before canKill was called before you return from that protected method)
+        //If health is still > 0, subtract the above total from healthLeft, which stands in for the player's health
         //add this monster to alreadyMarkedByCanKill, and return true.
-        Set<Monster> liveMonsters = new HashSet<>();
-        Weapon weaponNeeded = monster.getMonsterType().weaponNeededToKill;
-        for(Monster liveMonster : room.getLiveMonsters()){
-            if(!alreadyMarkedByCanKill.contains(liveMonster)){
-                liveMonsters.add(liveMonster);
-            }
-        }
-        if(!liveMonsters.contains(monster)){
+        int weaponNeeded = TypeRegistry.getWeaponNeededToKill(monster.getTypeId());
+        if(!room.getMonsters().contains(monster) || !room.isLive(monster) || alreadyMarkedByCanKill.get(room.indexOf(monster))){
             return false;
         }
         if(!player.hasWeapon(weaponNeeded)){
             return false;
         }
         SortedSet<Monster> protectors = getAllProtectorsInRoom(monster, room);
-        for(Monster markedMonster : alreadyMarkedByCanKill){
-            if(protectors.contains(markedMonster)){
-                protectors.remove(markedMonster);
-            }
-        }
+        protectors.removeIf(protector -> alreadyMarkedByCanKill.get(room.indexOf(protector)));
         for(Monster protector : protectors){
-            if(!canKill(player,protector,room,roundsUsedPerWeapon,alreadyMarkedByCanKill)){
+            if(!canKill(player,protector,room,roundsUsedPerWeapon,alreadyMarkedByCanKill,healthLeft)){
                 return false;
             }
         }
-        int ammoNeededToKill = monster.getMonsterType().ammunitionCountNeededToKill;
-        int roundsUsed = 0;
-        if(roundsUsedPerWeapon.get(weaponNeeded) != null){
-            roundsUsed = roundsUsedPerWeapon.get(weaponNeeded);
-        }
+        int ammoNeededToKill = TypeRegistry.getAmmunitionCountNeededToKill(monster.getTypeId());
+        int roundsUsed = roundsUsedPerWeapon[weaponNeeded];
         int ammoPlayerHas = player.getAmmunitionRoundsForWeapon(weaponNeeded) - roundsUsed;
         if(ammoNeededToKill > ammoPlayerHas){
             return false;
         }else{
-            roundsUsedPerWeapon.put(weaponNeeded,roundsUsed + ammoNeededToKill);
+            roundsUsedPerWeapon[weaponNeeded] = roundsUsed + ammoNeededToKill;
         }
         int healthNeeded = 0;
-        for(Monster liveMonster : liveMonsters){
-            healthNeeded += liveMonster.getMonsterType().playerHealthLostPerExposure;
+        for(Monster liveMonster : room.getLiveMonsters()){
+            if(!alreadyMarkedByCanKill.get(room.indexOf(liveMonster))){
+                healthNeeded += TypeRegistry.getPlayerHealthLostPerExposure(liveMonster.getTypeId());
+            }
         }
-        if(player.getHealth() < healthNeeded){
+        if(healthLeft[0] < healthNeeded){
             return false;
         }else{
 
-            player.setHealth(player.getHealth() -healthNeeded);
-            alreadyMarkedByCanKill.add(monster);
+            healthLeft[0] -= healthNeeded;
+            alreadyMarkedByCanKill.set(room.indexOf(monster));
             return true;
         }
 
@@ -0,0 +1,262 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * End-to-end benchmark of GameBot#play. Loads scenarios from a file, or generates them, runs warmup iterations,
+ * then times many games and reports latency percentiles, throughput, allocation and GC time. Each run is summarized
+ * as one row appended to a CSV file, so results can be tracked over time. Runs headless.
+ *
+ * Usage: GameBotBenchmark [--scenarios file] [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * [--warmup n] [--iterations n] [--csv file] [--results file]
+ *
+ * Only GameBot#play is timed; building each game's bot from its scenario is not, and nor is recording its result. A game whose
+ * play throws is counted as an error and as not completed, but its time still counts.
+ * With --results, the result of every timed game is written to the given file with a GameResultsWriter, labelled with the
+ * index of its scenario.
+ */
+public class GameBotBenchmark {
+    private static final String CSV_HEADER = "timestamp,scenarios,iterations,p50_us,p90_us,p99_us,max_us,games_per_sec,alloc_bytes_per_game,alloc_mb_per_sec,gc_count,gc_ms,completed_fraction,errors";
+
+    private List<List<String>> scenarios;
+    private int warmup;
+    private int iterations;
+    private GameResultsWriter results;
+
+    public GameBotBenchmark(List<List<String>> scenarios, int warmup, int iterations){
+        if(scenarios.isEmpty() || warmup < 0 || iterations < 1){
+            throw new IllegalArgumentException();
+        }
+        this.scenarios = scenarios;
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            if(!args[i].startsWith("--")){
+                throw new IllegalArgumentException("expected an option but got " + args[i]);
+            }
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        List<List<String>> scenarios;
+        if(options.containsKey("scenarios")){
+            try(BufferedReader reader = Files.newBufferedReader(Paths.get(options.get("scenarios")),StandardCharsets.UTF_8)){
+                scenarios = ScenarioCodec.readMessages(reader);
+            }
+        }else{
+            ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                    Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                    Integer.parseInt(options.getOrDefault("players","3")));
+            int count = Integer.parseInt(options.getOrDefault("generate","100"));
+            scenarios = new ArrayList<>();
+            for(int i = 0; i < count; i++){
+                try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                    scenarios.addAll(ScenarioCodec.readMessages(reader));
+                }
+            }
+        }
+        GameBotBenchmark benchmark = new GameBotBenchmark(scenarios,Integer.parseInt(options.getOrDefault("warmup","2000")),
+                Integer.parseInt(options.getOrDefault("iterations","10000")));
+        Result result;
+        if(options.containsKey("results")){
+            try(GameResultsWriter results = new GameResultsWriter(Paths.get(options.get("results")))){
+                benchmark.setResults(results);
+                result = benchmark.run();
+            }
+        }else{
+            result = benchmark.run();
+        }
+        System.out.println(result);
+        result.appendTo(Paths.get(options.getOrDefault("csv","gamebot-benchmark.csv")));
+    }
+
+    /**
+     * record the result of every timed game on the given writer, or stop recording with null
+     * @param results
+     */
+    public void setResults(GameResultsWriter results){
+        this.results = results;
+    }
+
+    /**
+     * run the warmup iterations, then the timed iterations, cycling through the scenarios
+     * @return the measurements of the timed iterations
+     * @throws IOException if a result couldn't be recorded
+     */
+    public Result run() throws IOException {
+        for(int i = 0; i < warmup; i++){
+            try{
+                ScenarioCodec.decodeScenario(scenarios.get(i % scenarios.size())).play();
+            }catch(RuntimeException e){
+                //counted in the timed iterations
+            }
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)threads : null;
+        long threadId = Thread.currentThread().getId();
+        long[] latencies = new long[iterations];
+        int completed = 0;
+        int errors = 0;
+        long gcCountBefore = totalGcCount();
+        long gcMillisBefore = totalGcMillis();
+        long allocatedBefore = allocations == null ? -1 : allocations.getThreadAllocatedBytes(threadId);
+        long allocatedDuringSetup = 0;
+        long start = System.nanoTime();
+        long setupNanos = 0;
+        for(int i = 0; i < iterations; i++){
+            long setupStart = System.nanoTime();
+            long setupAllocatedBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId);
+            GameBot bot = ScenarioCodec.decodeScenario(scenarios.get(i % scenarios.size()));
+            long playStart = System.nanoTime();
+            allocatedDuringSetup += allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId) - setupAllocatedBefore;
+            PlayProgress progress = null;
+            try{
+                progress = bot.play(new PlaySession());
+                if(progress.getStatus() == PlayProgress.Status.COMPLETED){
+                    completed++;
+                }
+            }catch(RuntimeException e){
+                errors++;
+            }
+            long playEnd = System.nanoTime();
+            setupNanos += playStart - setupStart;
+            latencies[i] = playEnd - playStart;
+            if(results != null && progress != null){
+                long recordAllocatedBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId);
+                results.add(Integer.toString(i % scenarios.size()),progress,bot.getLivePlayers());
+                allocatedDuringSetup += allocations == null ? 0 : allocations.getThreadAllocatedBytes(threadId) - recordAllocatedBefore;
+                setupNanos += System.nanoTime() - playEnd;
+            }
+        }
+        long wallNanos = System.nanoTime() - start - setupNanos;
+        long allocated = allocations == null ? -1 : allocations.getThreadAllocatedBytes(threadId) - allocatedBefore - allocatedDuringSetup;
+        Arrays.sort(latencies);
+        return new Result(scenarios.size(),iterations,latencies,wallNanos,allocated,totalGcCount() - gcCountBefore,totalGcMillis() - gcMillisBefore,completed,errors);
+    }
+
+    private static long totalGcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(0,gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long totalGcMillis(){
+        long millis = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            millis += Math.max(0,gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * The measurements of one benchmark run
+     */
+    public static class Result {
+        private int scenarios;
+        private int iterations;
+        private long[] sortedLatencies;
+        private long wallNanos;
+        private long allocatedBytes;
+        private long gcCount;
+        private long gcMillis;
+        private int completed;
+        private int errors;
+
+        private Result(int scenarios, int iterations, long[] sortedLatencies, long wallNanos, long allocatedBytes, long gcCount, long gcMillis, int completed, int errors){
+            this.scenarios = scenarios;
+            this.iterations = iterations;
+            this.sortedLatencies = sortedLatencies;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.completed = completed;
+            this.errors = errors;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the latency, in nanoseconds, at the given percentile, by the nearest-rank method
+         */
+        public long getLatencyPercentile(double percentile){
+            int rank = (int)Math.ceil(percentile / 100 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0,Math.min(sortedLatencies.length - 1,rank - 1))];
+        }
+
+        public double getGamesPerSecond(){
+            return iterations / (wallNanos / 1e9);
+        }
+
+        /**
+         * @return bytes allocated per game played, or -1 if this JVM can't measure allocation
+         */
+        public long getAllocatedBytesPerGame(){
+            return allocatedBytes < 0 ? -1 : allocatedBytes / iterations;
+        }
+
+        /**
+         * @return megabytes allocated per second of play, or -1 if this JVM can't measure allocation
+         */
+        public double getAllocationRateMBPerSecond(){
+            return allocatedBytes < 0 ? -1 : allocatedBytes / 1e6 / (wallNanos / 1e9);
+        }
+
+        public long getGcCount(){
+            return this.gcCount;
+        }
+
+        public long getGcMillis(){
+            return this.gcMillis;
+        }
+
+        public double getCompletedFraction(){
+            return (double)completed / iterations;
+        }
+
+        /**
+         * @return the number of games whose play threw an exception
+         */
+        public int getErrors(){
+            return this.errors;
+        }
+
+        /**
+         * append this result as a row to the given CSV file, writing the header first if the file is new
+         * @param csv
+         * @throws IOException
+         */
+        public void appendTo(Path csv) throws IOException {
+            boolean isNew = !Files.exists(csv) || Files.size(csv) == 0;
+            try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv.toFile(),true),StandardCharsets.UTF_8))){
+                if(isNew){
+                    writer.write(CSV_HEADER + "\n");
+                }
+                writer.write(String.format(Locale.ROOT,"%s,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%.1f,%d,%d,%.4f,%d%n",
+                        Instant.now(),scenarios,iterations,getLatencyPercentile(50) / 1e3,getLatencyPercentile(90) / 1e3,
+                        getLatencyPercentile(99) / 1e3,getLatencyPercentile(100) / 1e3,getGamesPerSecond(),getAllocatedBytesPerGame(),
+                        getAllocationRateMBPerSecond(),gcCount,gcMillis,getCompletedFraction(),errors));
+            }
+        }
+
+        @Override
+        public String toString(){
+            return String.format(Locale.ROOT,"%d games over %d scenarios: p50 %.1fus, p90 %.1fus, p99 %.1fus, max %.1fus, %.0f games/s, %d bytes/game (%.1f MB/s), %d GCs (%dms), %.1f%% completed, %d errors",
+                    iterations,scenarios,getLatencyPercentile(50) / 1e3,getLatencyPercentile(90) / 1e3,getLatencyPercentile(99) / 1e3,
+                    getLatencyPercentile(100) / 1e3,getGamesPerSecond(),getAllocatedBytesPerGame(),getAllocationRateMBPerSecond(),gcCount,gcMillis,
+                    getCompletedFraction() * 100,errors);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.SortedSet;
+
+/**
+ * A strategy for playing a game: given the rooms and players of a scenario, try to kill every monster in every room.
+ * ReferenceEngine, which plays with GameBot, defines the correct outcome; any other engine can be checked against it
+ * with a DifferentialRunner before it is trusted.
+ */
+public interface GameEngine {
+    /**
+     * @return a short name for this engine, used in reports
+     */
+    String getName();
+
+    /**
+     * Play the game, changing the given rooms, monsters and players as the game is played.
+     * @param rooms the set of rooms in this game
+     * @param players the set of players the engine can use to try to complete all rooms
+     * @return true if all rooms were completed, false if not
+     */
+    boolean play(SortedSet<Room> rooms, SortedSet<Player> players);
+}
@@ -0,0 +1,104 @@
+package edu.yu.cs.intro.doomGame;
+
+/**
+ * Something that happened while a GameBot played: a monster was killed, a room was completed, a player reaped a room's rewards,
+ * or a player died. Events are slots of a GameEventBus ring buffer, filled in by the bot and reused once delivered.
+ *
+ * The player, room and monster are the game's own objects, which the bot may have changed again by the time the event is
+ * delivered; the health and ammunition are the values when the event happened.
+ */
+public class GameEvent {
+    /**
+     * What happened
+     */
+    public enum Type {
+        /**the player killed the monster in the room, firing the rounds of the weapon*/
+        MONSTER_KILLED,
+        /**the player killed the last live monster in the room*/
+        ROOM_COMPLETED,
+        /**the player was given the room's weapons, ammunition and health*/
+        REWARD_GRANTED,
+        /**the player's health fell to zero or below in the room*/
+        PLAYER_DIED;
+    }
+
+    private long sequence;
+    private Type type;
+    private Player player;
+    private Room room;
+    private Monster monster;
+    private int weapon;
+    private int rounds;
+    private int playerHealth;
+
+    protected GameEvent(){
+    }
+
+    /**
+     * fill in this slot for a new event
+     */
+    protected void set(long sequence, Type type, Player player, Room room, Monster monster, int weapon, int rounds){
+        this.sequence = sequence;
+        this.type = type;
+        this.player = player;
+        this.room = room;
+        this.monster = monster;
+        this.weapon = weapon;
+        this.rounds = rounds;
+        this.playerHealth = player.getHealth();
+    }
+
+    /**
+     * @return the position of this event among all the events published on its bus, starting at 0
+     */
+    public long getSequence(){
+        return this.sequence;
+    }
+
+    public Type getType(){
+        return this.type;
+    }
+
+    public Player getPlayer(){
+        return this.player;
+    }
+
+    public Room getRoom(){
+        return this.room;
+    }
+
+    /**
+     * @return the monster killed, or null if this isn't a MONSTER_KILLED event
+     */
+    public Monster getMonster(){
+        return this.monster;
+    }
+
+    /**
+     * @return the TypeRegistry id of the weapon fired, or TypeRegistry.NONE if this isn't a MONSTER_KILLED event
+     */
+    public int getWeapon(){
+        return this.weapon;
+    }
+
+    /**
+     * @return the rounds fired, or 0 if this isn't a MONSTER_KILLED event
+     */
+    public int getRounds(){
+        return this.rounds;
+    }
+
+    /**
+     * @return the player's health just after the event
+     */
+    public int getPlayerHealth(){
+        return this.playerHealth;
+    }
+
+    @Override
+    public String toString(){
+        return "GameEvent{" + sequence + " " + type + " player=" + player.getName() + " room=" + room.getName()
+                + (monster == null ? "" : " monster=" + TypeRegistry.getMonsterTypeName(monster.getTypeId()) + " weapon="
+                + TypeRegistry.getWeaponName(weapon) + " rounds=" + rounds) + " health=" + playerHealth + "}";
+    }
+}
@@ -0,0 +1,367 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries game events from the GameBots it is attached to, to its listeners, without slowing the bots down.
+ *
+ * Events are written into a ring of GameEvent slots allocated up front, so publishing allocates nothing, and a delivery thread
+ * hands every event published since its last batch to the listeners in one go. Bots only wait for the delivery thread when the
+ * ring is full, parked without holding the bus's lock until the delivery thread has freed slots, so other bots, #addListener
+ * and #close don't wait with them. While the bus has no listeners, publishing returns at once without touching the ring.
+ *
+ * Events describe moves as they are made. Moves undone with a Trail aren't retracted, so a search that tries moves should play
+ * without a bus, or with one that has no listeners.
+ *
+ * Usage: GameEventBus [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n] [--threads n] [--capacity n]
+ * plays generated scenarios on several threads, all publishing on one small bus, and checks that the listener received every
+ * event in sequence, one kill for every kill the bots made and one completion for every room they completed, and that adding
+ * a listener while the ring is full doesn't wait for a slow listener.
+ */
+public class GameEventBus implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private GameEvent[] ring;
+    private int mask;
+    private List<GameEventListener> listeners;
+    /**the sequence the next event will be published with; only changed while holding this bus's lock*/
+    private long next;
+    /**the sequence of the last event published*/
+    private volatile long published;
+    /**the sequence of the last event delivered to every listener*/
+    private volatile long delivered;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+    /**set once the delivery thread has stopped, whether closed or killed by an Error*/
+    private volatile boolean consumerStopped;
+    private Thread consumer;
+    /**the publishers parked until the ring has room, for the delivery thread to unpark once it has delivered a batch*/
+    private Queue<Thread> waitingPublishers;
+
+    public GameEventBus(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of events the ring holds, which is the most a bot can get ahead of delivery
+     * @throws IllegalArgumentException if capacity isn't a power of two
+     */
+    public GameEventBus(int capacity){
+        if(capacity < 1 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException();
+        }
+        this.ring = new GameEvent[capacity];
+        for(int i = 0; i < capacity; i++){
+            ring[i] = new GameEvent();
+        }
+        this.mask = capacity - 1;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.waitingPublishers = new ConcurrentLinkedQueue<>();
+        this.published = -1;
+        this.delivered = -1;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        long seed = Long.parseLong(options.getOrDefault("seed","42"));
+        int rooms = Integer.parseInt(options.getOrDefault("rooms","20"));
+        int monsters = Integer.parseInt(options.getOrDefault("monsters","8"));
+        int players = Integer.parseInt(options.getOrDefault("players","3"));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        int threadCount = Integer.parseInt(options.getOrDefault("threads","4"));
+        GameEventBus bus = new GameEventBus(Integer.parseInt(options.getOrDefault("capacity","4")));
+        long[] received = new long[GameEvent.Type.values().length];
+        long[] outOfSequence = new long[1];
+        bus.addListener(event -> {
+            if(event.getSequence() != received[0] + received[1] + received[2] + received[3]){
+                outOfSequence[0]++;
+            }
+            received[event.getType().ordinal()]++;
+        });
+        AtomicLong kills = new AtomicLong();
+        AtomicLong completions = new AtomicLong();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < threadCount; t++){
+            ScenarioGenerator generator = new ScenarioGenerator(seed + t,rooms,monsters,players);
+            int share = count / threadCount + (t < count % threadCount ? 1 : 0);
+            Thread thread = new Thread(() -> {
+                try{
+                    for(int i = 0; i < share; i++){
+                        for(GameBot bot : newBots(generator.next())){
+                            bot.setEventBus(bus);
+                            kills.addAndGet(bot.play(new PlaySession()).getKills());
+                            for(Room room : bot.getCompletedRooms()){
+                                if(!room.getMonsters().isEmpty()){
+                                    completions.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                }catch(IOException | RuntimeException e){
+                    errors.add(e);
+                }
+            },"player-" + t);
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+        bus.close();
+        List<String> failures = new ArrayList<>();
+        for(Throwable error : errors){
+            failures.add("a bot failed with " + error);
+        }
+        if(outOfSequence[0] > 0){
+            failures.add(outOfSequence[0] + " events out of sequence");
+        }
+        if(received[GameEvent.Type.MONSTER_KILLED.ordinal()] != kills.get()){
+            failures.add(received[GameEvent.Type.MONSTER_KILLED.ordinal()] + " kill events for " + kills.get() + " kills");
+        }
+        if(received[GameEvent.Type.ROOM_COMPLETED.ordinal()] != completions.get()){
+            failures.add(received[GameEvent.Type.ROOM_COMPLETED.ordinal()] + " completion events for " + completions.get() + " rooms completed");
+        }
+        long waited = timeAddListenerWhileFull(seed,rooms,monsters,players);
+        if(waited > 20_000_000){
+            failures.add("adding a listener to a full bus waited " + waited / 1000 + " us");
+        }
+        for(String failure : failures){
+            System.out.println(failure);
+        }
+        System.out.println(failures.size() + " failures; events " + Arrays.toString(received) + " by type " + Arrays.toString(GameEvent.Type.values())
+                + "; adding a listener to a full bus took " + waited / 1000 + " us");
+        if(!failures.isEmpty()){
+            System.exit(1);
+        }
+    }
+
+    private static List<GameBot> newBots(String scenarios) throws IOException {
+        List<GameBot> bots = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new StringReader(scenarios))){
+            for(List<String> lines : ScenarioCodec.readMessages(reader)){
+                ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+                bots.add(new GameBot(scenario.getRooms(),scenario.getPlayers()));
+            }
+        }
+        return bots;
+    }
+
+    /**
+     * @return the nanoseconds #addListener took while a bot was waiting for a slow listener to make room in the ring
+     */
+    private static long timeAddListenerWhileFull(long seed, int rooms, int monsters, int players) throws IOException, InterruptedException {
+        GameEventBus bus = new GameEventBus(2);
+        AtomicBoolean slow = new AtomicBoolean(true);
+        bus.addListener(event -> {
+            if(slow.get()){
+                try{
+                    Thread.sleep(100);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        List<GameBot> bots = newBots(new ScenarioGenerator(seed,rooms,monsters,players).next());
+        Thread player = new Thread(() -> {
+            for(GameBot bot : bots){
+                bot.setEventBus(bus);
+                bot.play();
+            }
+        },"player");
+        player.start();
+        //let the bot fill the ring while the listener is busy with the first event
+        Thread.sleep(30);
+        long start = System.nanoTime();
+        bus.addListener(event -> {});
+        long waited = System.nanoTime() - start;
+        slow.set(false);
+        player.join();
+        bus.close();
+        return waited;
+    }
+
+    /**
+     * start delivering events to the given listener, from the next event published
+     * @param listener
+     * @throws IllegalArgumentException if the listener is null
+     * @throws IllegalStateException if the bus is closed
+     */
+    public synchronized void addListener(GameEventListener listener){
+        if(listener == null){
+            throw new IllegalArgumentException();
+        }
+        if(closed){
+            throw new IllegalStateException();
+        }
+        if(consumer == null){
+            consumer = new Thread(this::deliver,"game-event-delivery");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * stop delivering events to the given listener. Events already in a batch being delivered may still reach it.
+     * @param listener
+     * @return true if the listener was on this bus
+     */
+    public boolean removeListener(GameEventListener listener){
+        return listeners.remove(listener);
+    }
+
+    /**
+     * @return does anyone want events? Bots publish nothing while this is false.
+     */
+    public boolean hasListeners(){
+        return !listeners.isEmpty();
+    }
+
+    protected void monsterKilled(Player player, Room room, Monster monster, int weapon, int rounds){
+        if(!listeners.isEmpty()){
+            publish(GameEvent.Type.MONSTER_KILLED,player,room,monster,weapon,rounds);
+        }
+    }
+
+    protected void roomCompleted(Player player, Room room){
+        if(!listeners.isEmpty()){
+            publish(GameEvent.Type.ROOM_COMPLETED,player,room,null,TypeRegistry.NONE,0);
+        }
+    }
+
+    protected void rewardGranted(Player player, Room room){
+        if(!listeners.isEmpty()){
+            publish(GameEvent.Type.REWARD_GRANTED,player,room,null,TypeRegistry.NONE,0);
+        }
+    }
+
+    protected void playerDied(Player player, Room room){
+        if(!listeners.isEmpty()){
+            publish(GameEvent.Type.PLAYER_DIED,player,room,null,TypeRegistry.NONE,0);
+        }
+    }
+
+    private void publish(GameEvent.Type type, Player player, Room room, Monster monster, int weapon, int rounds){
+        while(true){
+            long seen;
+            synchronized(this){
+                if(closed){
+                    return;
+                }
+                seen = delivered;
+                //the next slot is free once its previous event has been delivered
+                if(next - seen <= ring.length){
+                    long sequence = next++;
+                    ring[(int)sequence & mask].set(sequence,type,player,room,monster,weapon,rounds);
+                    published = sequence;
+                    if(consumerParked){
+                        LockSupport.unpark(consumer);
+                    }
+                    return;
+                }
+                waitingPublishers.add(Thread.currentThread());
+            }
+            if(consumerStopped){
+                //delivery died with an Error; drop the event rather than wait forever
+                waitingPublishers.remove(Thread.currentThread());
+                return;
+            }
+            //recheck after joining the queue, so a batch delivered in between isn't missed
+            if(delivered == seen){
+                LockSupport.park(this);
+            }
+            waitingPublishers.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * wait until every event published so far has been delivered to the listeners
+     */
+    public void flush(){
+        long target = published;
+        while(delivered < target && consumer != null && consumer.isAlive()){
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this,10000);
+        }
+    }
+
+    /**
+     * deliver every event published so far, then stop the delivery thread. Events published after this are dropped.
+     */
+    @Override
+    public void close(){
+        Thread thread;
+        synchronized(this){
+            closed = true;
+            thread = consumer;
+        }
+        if(thread != null){
+            LockSupport.unpark(thread);
+            try{
+                thread.join();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deliver(){
+        try{
+            deliverBatches();
+        }finally{
+            consumerStopped = true;
+            unparkPublishers();
+        }
+    }
+
+    private void unparkPublishers(){
+        for(Thread publisher : waitingPublishers){
+            LockSupport.unpark(publisher);
+        }
+    }
+
+    private void deliverBatches(){
+        while(true){
+            long from = delivered + 1;
+            long to = published;
+            if(to < from){
+                if(closed){
+                    return;
+                }
+                consumerParked = true;
+                //recheck after announcing the park, so an event published in between isn't missed
+                if(published < from && !closed){
+                    LockSupport.park(this);
+                }
+                consumerParked = false;
+                continue;
+            }
+            for(GameEventListener listener : listeners){
+                try{
+                    for(long sequence = from; sequence <= to; sequence++){
+                        listener.onEvent(ring[(int)sequence & mask]);
+                    }
+                    listener.endOfBatch();
+                }catch(RuntimeException e){
+                    //a failing listener must not hold up the others, nor the bots once the ring fills up
+                    listeners.remove(listener);
+                    Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(),e);
+                }
+            }
+            delivered = to;
+            unparkPublishers();
+        }
+    }
+}
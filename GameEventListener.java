@@ -0,0 +1,19 @@
+package edu.yu.cs.intro.doomGame;
+
+/**
+ * Receives the events of games played by a GameBot with a GameEventBus attached. Events are delivered on the bus's delivery
+ * thread, in the order they happened, a batch at a time: #onEvent for every event of the batch, then #endOfBatch.
+ * @see GameBot#setEventBus(GameEventBus)
+ */
+public interface GameEventListener {
+    /**
+     * @param event the next event. The bus reuses the event object once this call returns, so copy anything that must be kept.
+     */
+    void onEvent(GameEvent event);
+
+    /**
+     * called after the last event of each batch, e.g. to flush what the batch was written to
+     */
+    default void endOfBatch(){
+    }
+}
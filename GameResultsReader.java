@@ -0,0 +1,268 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads a file written by GameResultsWriter one column at a time. Scanning a column reads only that column's blocks, skipping
+ * over the others' without reading them, and decodes its bit-packed values a word at a time, so it costs little more than
+ * reading those blocks from disk.
+ *
+ * Usage: GameResultsReader file [column ...]
+ * prints the count, minimum, maximum and mean of each of the given number columns, or of every column, and the number of
+ * distinct values of label columns. The mean of success is the fraction of games completed.
+ */
+public class GameResultsReader implements AutoCloseable {
+    private FileChannel channel;
+    private List<String> columns;
+    private byte[] types;
+    private long firstBlock;
+    private ByteBuffer buffer;
+    private long[] words;
+
+    /**
+     * @param file
+     * @throws IOException if the file can't be read, or wasn't written by a GameResultsWriter
+     */
+    public GameResultsReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file,StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        this.words = new long[0];
+        try{
+            ByteBuffer header = read(0,12);
+            if(header.getInt() != GameResultsWriter.MAGIC || header.getInt() != GameResultsWriter.VERSION){
+                throw new IOException("not a results file of version " + GameResultsWriter.VERSION + ": " + file);
+            }
+            int count = header.getInt();
+            this.columns = new ArrayList<>(count);
+            this.types = new byte[count];
+            long position = 12;
+            for(int column = 0; column < count; column++){
+                ByteBuffer entry = read(position,3);
+                types[column] = entry.get();
+                int length = Short.toUnsignedInt(entry.getShort());
+                byte[] name = new byte[length];
+                read(position + 3,length).get(name);
+                columns.add(new String(name,StandardCharsets.UTF_8));
+                position += 3 + length;
+            }
+            this.firstBlock = position;
+        }catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1){
+            System.err.println("Usage: GameResultsReader file [column ...]");
+            return;
+        }
+        try(GameResultsReader reader = new GameResultsReader(Paths.get(args[0]))){
+            List<String> columns = args.length > 1 ? Arrays.asList(args).subList(1,args.length) : reader.getColumns();
+            for(String column : columns){
+                if(reader.isLabelColumn(column)){
+                    Set<String> distinct = new HashSet<>();
+                    reader.scanLabels(column,distinct::add);
+                    System.out.println(String.format(Locale.ROOT,"%-20s %d distinct",column,distinct.size()));
+                }else{
+                    LongSummaryStatistics statistics = new LongSummaryStatistics();
+                    reader.scan(column,statistics);
+                    System.out.println(String.format(Locale.ROOT,"%-20s count %d, min %d, max %d, mean %.4f",column,statistics.getCount(),
+                            statistics.getMin(),statistics.getMax(),statistics.getAverage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the names of the columns, in the order they are stored
+     */
+    public List<String> getColumns(){
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * @param column
+     * @return true if the column holds labels, false if it holds numbers
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public boolean isLabelColumn(String column){
+        return types[indexOf(column)] == GameResultsWriter.LABEL_COLUMN;
+    }
+
+    /**
+     * @return the number of games in the file, from the block headers alone
+     * @throws IOException
+     */
+    public long getRowCount() throws IOException {
+        long rows = 0;
+        for(long position = firstBlock; position < channel.size(); ){
+            ByteBuffer header = read(position,GameResultsWriter.BLOCK_HEADER_BYTES);
+            int column = header.getInt();
+            int count = header.getInt();
+            header.get();
+            if(column == 0){
+                rows += count;
+            }
+            position += GameResultsWriter.BLOCK_HEADER_BYTES + header.getInt();
+        }
+        return rows;
+    }
+
+    /**
+     * pass every value of the given number column to the consumer, in the order the games were added
+     * @param column
+     * @param consumer
+     * @throws IOException
+     * @throws IllegalArgumentException if there is no such column, or it holds labels
+     */
+    public void scan(String column, LongConsumer consumer) throws IOException {
+        int index = indexOf(column);
+        if(types[index] != GameResultsWriter.NUMBER_COLUMN){
+            throw new IllegalArgumentException(column + " holds labels");
+        }
+        for(long position = firstBlock; position < channel.size(); ){
+            ByteBuffer header = read(position,GameResultsWriter.BLOCK_HEADER_BYTES);
+            int blockColumn = header.getInt();
+            int count = header.getInt();
+            byte encoding = header.get();
+            int length = header.getInt();
+            if(blockColumn == index){
+                ByteBuffer block = read(position + GameResultsWriter.BLOCK_HEADER_BYTES,length);
+                if(encoding == GameResultsWriter.DELTA){
+                    long value = block.getLong();
+                    long minDelta = block.getLong();
+                    int width = block.get();
+                    consumer.accept(value);
+                    unpack(unpackWords(block,count - 1,width),count - 1,width,minDelta,true,value,consumer);
+                }else if(encoding == GameResultsWriter.FRAME_OF_REFERENCE){
+                    long min = block.getLong();
+                    int width = block.get();
+                    unpack(unpackWords(block,count,width),count,width,min,false,0,consumer);
+                }else{
+                    throw new IOException("unknown encoding " + encoding + " of " + column);
+                }
+            }
+            position += GameResultsWriter.BLOCK_HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * pass every value of the given label column to the consumer, in the order the games were added
+     * @param column
+     * @param consumer
+     * @throws IOException
+     * @throws IllegalArgumentException if there is no such column, or it holds numbers
+     */
+    public void scanLabels(String column, Consumer<String> consumer) throws IOException {
+        int index = indexOf(column);
+        if(types[index] != GameResultsWriter.LABEL_COLUMN){
+            throw new IllegalArgumentException(column + " holds numbers");
+        }
+        for(long position = firstBlock; position < channel.size(); ){
+            ByteBuffer header = read(position,GameResultsWriter.BLOCK_HEADER_BYTES);
+            int blockColumn = header.getInt();
+            int count = header.getInt();
+            byte encoding = header.get();
+            int length = header.getInt();
+            if(blockColumn == index){
+                if(encoding != GameResultsWriter.DICTIONARY){
+                    throw new IOException("unknown encoding " + encoding + " of " + column);
+                }
+                ByteBuffer block = read(position + GameResultsWriter.BLOCK_HEADER_BYTES,length);
+                String[] dictionary = new String[block.getInt()];
+                for(int i = 0; i < dictionary.length; i++){
+                    byte[] entry = new byte[block.getInt()];
+                    block.get(entry);
+                    dictionary[i] = new String(entry,StandardCharsets.UTF_8);
+                }
+                int width = block.get();
+                unpack(unpackWords(block,count,width),count,width,0,false,0,code -> consumer.accept(dictionary[(int)code]));
+            }
+            position += GameResultsWriter.BLOCK_HEADER_BYTES + length;
+        }
+    }
+
+    private int indexOf(String column){
+        int index = columns.indexOf(column);
+        if(index < 0){
+            throw new IllegalArgumentException("no column " + column);
+        }
+        return index;
+    }
+
+    /**
+     * @return the words holding count values of width bits each, from the block's position
+     */
+    private long[] unpackWords(ByteBuffer block, int count, int width){
+        int wordCount = GameResultsWriter.packedBytes(count,width) / 8;
+        if(words.length < wordCount){
+            words = new long[Math.max(wordCount,words.length * 2)];
+        }
+        block.asLongBuffer().get(words,0,wordCount);
+        return words;
+    }
+
+    /**
+     * pass the count values of width bits each packed into the words, each plus the base, to the consumer, in order
+     * @param differences pass the running total of the values, starting from first, rather than the values themselves
+     */
+    private static void unpack(long[] packed, int count, int width, long base, boolean differences, long first, LongConsumer consumer){
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        long total = first;
+        int word = 0;
+        int offset = 0;
+        for(int i = 0; i < count; i++){
+            long value = 0;
+            if(width > 0){
+                value = packed[word] >>> offset;
+                if(offset + width > 64){
+                    value |= packed[word + 1] << (64 - offset);
+                }
+                offset += width;
+                if(offset >= 64){
+                    word++;
+                    offset -= 64;
+                }
+            }
+            value = base + (value & mask);
+            if(differences){
+                total += value;
+                value = total;
+            }
+            consumer.accept(value);
+        }
+    }
+
+    /**
+     * @return the given bytes of the file, in a buffer that is reused by the next read
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        if(buffer.capacity() < length){
+            buffer = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear().limit(length);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer,position + buffer.position()) < 0){
+                throw new EOFException("results file ends inside a block");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,408 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes the results of many games to a file, column by column, so millions of games take little space and any one column
+ * can be read back with GameResultsReader without decoding the others.
+ *
+ * Every game is a row with these columns:
+ * scenario (a label), success (1 or 0), status (PlayProgress.Status ordinal), passes, roomsCompleted, totalRooms, kills,
+ * startNanos (when the row was added, since the writer was opened), elapsedNanos, livePlayers, health (total of the live players),
+ * and ammo.WEAPON (total of the live players holding it) for every weapon in the TypeRegistry when the writer was opened.
+ *
+ * Rows are buffered and written a chunk at a time, each column of the chunk as one block, encoded on its own:
+ * - numbers are bit-packed as offsets from the chunk's minimum, in as few bits as the largest offset needs, or as the first value
+ *   and the bit-packed differences between neighbours, whichever is smaller, so a column that only ever grows by a little,
+ *   such as startNanos, takes a few bits per row, and a column that never changes takes none
+ * - labels are written as a dictionary of the chunk's distinct labels and bit-packed indexes into it
+ * Blocks go through a direct buffer into a FileChannel.
+ *
+ * The file starts with MAGIC, VERSION, and the type and name of every column. Each block is the column's index, the number of
+ * rows, the encoding and the length of the encoded values, followed by those values, all little-endian.
+ *
+ * Usage: GameResultsWriter [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n] [--chunk rows]
+ * plays generated scenarios, writes their results to a temporary file in small chunks, and checks that GameResultsReader reads
+ * back every value of every column as it was added.
+ */
+public class GameResultsWriter implements AutoCloseable {
+    protected static final int MAGIC = 0x53524744;
+    protected static final int VERSION = 1;
+    protected static final byte NUMBER_COLUMN = 0;
+    protected static final byte LABEL_COLUMN = 1;
+    protected static final byte FRAME_OF_REFERENCE = 0;
+    protected static final byte DELTA = 1;
+    protected static final byte DICTIONARY = 2;
+    /**column index, rows, encoding and length*/
+    protected static final int BLOCK_HEADER_BYTES = 13;
+    public static final int DEFAULT_CHUNK_ROWS = 65536;
+
+    private static final String[] FIXED_COLUMNS = {"scenario","success","status","passes","roomsCompleted","totalRooms","kills",
+            "startNanos","elapsedNanos","livePlayers","health"};
+
+    private FileChannel channel;
+    private ByteBuffer out;
+    private List<String> columns;
+    private int weapons;
+    private int chunkRows;
+    private int rows;
+    private String[] scenarios;
+    /**the number columns' values of the chunk being filled, by column index less one*/
+    private long[][] values;
+    private long openedNanos;
+
+    /**
+     * create or replace the given file, with the default number of rows per chunk
+     * @param file
+     * @throws IOException
+     */
+    public GameResultsWriter(Path file) throws IOException {
+        this(file,DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * create or replace the given file
+     * @param file
+     * @param chunkRows the number of rows buffered and written together; more rows compress better but take more memory
+     * @throws IOException
+     * @throws IllegalArgumentException if chunkRows < 1
+     */
+    public GameResultsWriter(Path file, int chunkRows) throws IOException {
+        if(chunkRows < 1){
+            throw new IllegalArgumentException();
+        }
+        this.columns = new ArrayList<>(Arrays.asList(FIXED_COLUMNS));
+        this.weapons = TypeRegistry.getWeaponCount();
+        for(int weapon = 0; weapon < weapons; weapon++){
+            columns.add("ammo." + TypeRegistry.getWeaponName(weapon));
+        }
+        this.chunkRows = chunkRows;
+        this.scenarios = new String[chunkRows];
+        this.values = new long[columns.size() - 1][chunkRows];
+        this.out = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING);
+        out.putInt(MAGIC).putInt(VERSION).putInt(columns.size());
+        for(String column : columns){
+            byte[] name = column.getBytes(StandardCharsets.UTF_8);
+            out.put(column.equals("scenario") ? LABEL_COLUMN : NUMBER_COLUMN).putShort((short)name.length).put(name);
+        }
+        this.openedNanos = System.nanoTime();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        Path file = Files.createTempFile("results",".bin");
+        List<String> scenarios = new ArrayList<>();
+        //what every number column should read back as, by column and row; startNanos is only known to the writer
+        Map<String,List<Long>> expected = new LinkedHashMap<>();
+        int failures = 0;
+        try{
+            List<String> columns;
+            try(GameResultsWriter writer = new GameResultsWriter(file,Integer.parseInt(options.getOrDefault("chunk","64")))){
+                columns = writer.getColumns();
+                for(String column : columns.subList(1,columns.size())){
+                    expected.put(column,new ArrayList<>());
+                }
+                expected.remove("startNanos");
+                for(int i = 0; i < count; i++){
+                    List<List<String>> messages;
+                    try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                        messages = ScenarioCodec.readMessages(reader);
+                    }
+                    for(List<String> lines : messages){
+                        ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+                        GameBot bot = new GameBot(scenario.getRooms(),scenario.getPlayers());
+                        //a budget that stops some games early, so every status shows up
+                        PlayProgress progress = bot.play(new PlaySession(null,i % 3 == 0 ? i % 40 : Long.MAX_VALUE));
+                        String label = "scenario " + (i % 11);
+                        writer.add(label,progress,scenario.getPlayers());
+                        scenarios.add(label);
+                        expected.get("success").add(progress.getStatus() == PlayProgress.Status.COMPLETED ? 1L : 0L);
+                        expected.get("status").add((long)progress.getStatus().ordinal());
+                        expected.get("passes").add((long)progress.getPasses());
+                        expected.get("roomsCompleted").add((long)progress.getRoomsCompleted());
+                        expected.get("totalRooms").add((long)progress.getTotalRooms());
+                        expected.get("kills").add(progress.getKills());
+                        expected.get("elapsedNanos").add(progress.getElapsedNanos());
+                        long livePlayers = 0;
+                        long health = 0;
+                        long[] ammo = new long[TypeRegistry.getWeaponCount()];
+                        for(Player player : scenario.getPlayers()){
+                            if(!player.isDead()){
+                                livePlayers++;
+                                health += player.getHealth();
+                                for(int weapon = 0; weapon < ammo.length; weapon++){
+                                    ammo[weapon] += player.hasWeapon(weapon) ? player.getAmmunitionRoundsForWeapon(weapon) : 0;
+                                }
+                            }
+                        }
+                        expected.get("livePlayers").add(livePlayers);
+                        expected.get("health").add(health);
+                        for(int weapon = 0; weapon < ammo.length; weapon++){
+                            expected.get("ammo." + TypeRegistry.getWeaponName(weapon)).add(ammo[weapon]);
+                        }
+                    }
+                }
+            }
+            try(GameResultsReader reader = new GameResultsReader(file)){
+                if(!reader.getColumns().equals(columns)){
+                    System.out.println("columns read back as " + reader.getColumns());
+                    failures++;
+                }
+                if(reader.getRowCount() != scenarios.size()){
+                    System.out.println(reader.getRowCount() + " rows read back for " + scenarios.size() + " added");
+                    failures++;
+                }
+                List<String> labels = new ArrayList<>();
+                reader.scanLabels("scenario",labels::add);
+                if(!labels.equals(scenarios)){
+                    System.out.println("scenario labels didn't read back as added");
+                    failures++;
+                }
+                List<Long> startNanos = new ArrayList<>();
+                reader.scan("startNanos",startNanos::add);
+                for(int row = 1; row < startNanos.size(); row++){
+                    if(startNanos.get(row) < startNanos.get(row - 1)){
+                        System.out.println("startNanos went back at row " + row);
+                        failures++;
+                        break;
+                    }
+                }
+                for(Map.Entry<String,List<Long>> column : expected.entrySet()){
+                    List<Long> values = new ArrayList<>();
+                    reader.scan(column.getKey(),values::add);
+                    if(!values.equals(column.getValue())){
+                        System.out.println(column.getKey() + " didn't read back as added");
+                        failures++;
+                    }
+                }
+            }
+            System.out.println(failures + " failures over " + scenarios.size() + " rows of " + expected.size() + " number columns, "
+                    + Files.size(file) + " bytes");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+        if(failures > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the names of the columns, in the order they are stored
+     */
+    public List<String> getColumns(){
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * add the result of one game
+     * @param scenario a label for the game's scenario; games of the same scenario should share a label
+     * @param progress what GameBot#play(PlaySession) returned
+     * @param players the game's players; only the live ones count towards health and ammunition
+     * @throws IOException if a full chunk couldn't be written
+     * @throws IllegalArgumentException if any argument is null
+     * @throws IllegalStateException if the writer is closed
+     */
+    public void add(String scenario, PlayProgress progress, Collection<Player> players) throws IOException {
+        if(scenario == null || progress == null || players == null){
+            throw new IllegalArgumentException();
+        }
+        if(channel == null){
+            throw new IllegalStateException();
+        }
+        scenarios[rows] = scenario;
+        set(1,progress.getStatus() == PlayProgress.Status.COMPLETED ? 1 : 0);
+        set(2,progress.getStatus().ordinal());
+        set(3,progress.getPasses());
+        set(4,progress.getRoomsCompleted());
+        set(5,progress.getTotalRooms());
+        set(6,progress.getKills());
+        set(7,System.nanoTime() - openedNanos);
+        set(8,progress.getElapsedNanos());
+        long livePlayers = 0;
+        long health = 0;
+        for(int weapon = 0; weapon < weapons; weapon++){
+            set(FIXED_COLUMNS.length + weapon,0);
+        }
+        for(Player player : players){
+            if(player.isDead()){
+                continue;
+            }
+            livePlayers++;
+            health += player.getHealth();
+            for(int weapon = 0; weapon < weapons; weapon++){
+                if(player.hasWeapon(weapon)){
+                    values[FIXED_COLUMNS.length + weapon - 1][rows] += player.getAmmunitionRoundsForWeapon(weapon);
+                }
+            }
+        }
+        set(9,livePlayers);
+        set(10,health);
+        if(++rows == chunkRows){
+            writeChunk();
+        }
+    }
+
+    private void set(int column, long value){
+        values[column - 1][rows] = value;
+    }
+
+    private void writeChunk() throws IOException {
+        if(rows == 0){
+            return;
+        }
+        writeLabels(0,scenarios,rows);
+        for(int column = 1; column < columns.size(); column++){
+            writeNumbers(column,values[column - 1],rows);
+        }
+        Arrays.fill(scenarios,null);
+        rows = 0;
+    }
+
+    private void writeNumbers(int column, long[] numbers, int count) throws IOException {
+        long min = numbers[0];
+        long max = numbers[0];
+        long minDelta = 0;
+        long maxDelta = 0;
+        for(int i = 1; i < count; i++){
+            min = Math.min(min,numbers[i]);
+            max = Math.max(max,numbers[i]);
+            long delta = numbers[i] - numbers[i - 1];
+            minDelta = i == 1 ? delta : Math.min(minDelta,delta);
+            maxDelta = i == 1 ? delta : Math.max(maxDelta,delta);
+        }
+        int width = bitWidth(min,max);
+        int deltaWidth = bitWidth(minDelta,maxDelta);
+        if(count > 1 && deltaWidth < width){
+            int length = 17 + packedBytes(count - 1,deltaWidth);
+            beginBlock(column,count,DELTA,length);
+            out.putLong(numbers[0]).putLong(minDelta).put((byte)deltaWidth);
+            pack(numbers,1,count,minDelta,deltaWidth,true);
+        }else{
+            int length = 9 + packedBytes(count,width);
+            beginBlock(column,count,FRAME_OF_REFERENCE,length);
+            out.putLong(min).put((byte)width);
+            pack(numbers,0,count,min,width,false);
+        }
+    }
+
+    private void writeLabels(int column, String[] labels, int count) throws IOException {
+        Map<String,Integer> codes = new LinkedHashMap<>();
+        long[] indexes = new long[count];
+        int dictionaryBytes = 0;
+        List<byte[]> entries = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            Integer code = codes.get(labels[i]);
+            if(code == null){
+                code = codes.size();
+                codes.put(labels[i],code);
+                byte[] entry = labels[i].getBytes(StandardCharsets.UTF_8);
+                entries.add(entry);
+                dictionaryBytes += 4 + entry.length;
+            }
+            indexes[i] = code;
+        }
+        int width = bitWidth(0,codes.size() - 1);
+        beginBlock(column,count,DICTIONARY,4 + dictionaryBytes + 1 + packedBytes(count,width));
+        out.putInt(entries.size());
+        for(byte[] entry : entries){
+            out.putInt(entry.length).put(entry);
+        }
+        out.put((byte)width);
+        pack(indexes,0,count,0,width,false);
+    }
+
+    /**
+     * write a block's header, making room in the buffer for the whole block
+     */
+    private void beginBlock(int column, int count, byte encoding, int length) throws IOException {
+        int blockBytes = BLOCK_HEADER_BYTES + length;
+        if(out.remaining() < blockBytes){
+            drain();
+            if(out.capacity() < blockBytes){
+                out = ByteBuffer.allocateDirect(blockBytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        out.putInt(column).putInt(count).put(encoding).putInt(length);
+    }
+
+    /**
+     * write the given values, less the given base, width bits each, into as many longs as they take
+     * @param differences pack the difference between each value and the one before it rather than the value itself
+     */
+    private void pack(long[] numbers, int from, int to, long base, int width, boolean differences){
+        if(width == 0){
+            return;
+        }
+        long word = 0;
+        int used = 0;
+        for(int i = from; i < to; i++){
+            long value = (differences ? numbers[i] - numbers[i - 1] : numbers[i]) - base;
+            word |= value << used;
+            used += width;
+            if(used >= 64){
+                out.putLong(word);
+                used -= 64;
+                //the bits of the value that didn't fit start the next word
+                word = used == 0 ? 0 : value >>> (width - used);
+            }
+        }
+        if(used > 0){
+            out.putLong(word);
+        }
+    }
+
+    /**
+     * @return the number of bits the largest offset from min takes, treating the range as unsigned
+     */
+    protected static int bitWidth(long min, long max){
+        return 64 - Long.numberOfLeadingZeros(max - min);
+    }
+
+    protected static int packedBytes(int count, int width){
+        return (int)(((long)count * width + 63) >>> 6) * 8;
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while(out.hasRemaining()){
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * write the rows not yet written and close the file
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if(channel == null){
+            return;
+        }
+        try{
+            writeChunk();
+            drain();
+        }finally{
+            channel.close();
+            channel = null;
+        }
+    }
+}
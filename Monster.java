@@ -1,27 +1,33 @@
 package edu.yu.cs.intro.doomGame;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A specific monster
  */
 public class Monster implements Comparable<Monster>{
+    private static final AtomicLong nextId = new AtomicLong();
+
     /**
      * create a monster with no customr protectors; its protectors will be determined by its MonsterType
      * @param type the type of monster to create
      */
+    /**null if the type was defined at runtime*/
     private MonsterType monsterType;
-    private MonsterType customProtectedBy;
-    private Map<Monster,Room> monsterToRoom;
+    /**the TypeRegistry id of this monster's type*/
+    private int typeId;
+    /**the TypeRegistry id of the custom protector, or TypeRegistry.NONE*/
+    private int customProtectedBy;
     private int monsterHealth;
     private boolean dead;
     private Room room;
+    /**this monster's position in its room, which numbers its monsters 0, 1, 2...*/
+    private int roomIndex;
+    private Trail trail;
+    private final long id;
 
     protected Monster(MonsterType type){
-        monsterToRoom = new HashMap<>();
-        this.monsterHealth = type.ammunitionCountNeededToKill;
-        this.monsterType = type;
+        this(type.ordinal(),TypeRegistry.NONE);
     }
     /**
      * create a monster with a custom protector, i.e. a different protector than the one specified in its MonsterType
@@ -29,35 +35,68 @@ public class Monster implements Comparable<Monster>{
      * @param customProtectedBy
      */
     public Monster(MonsterType type, MonsterType customProtectedBy){
-            this(type);
-            switch (monsterType){
-                case IMP:
-                    this.customProtectedBy = customProtectedBy;
-                    break;
-                case DEMON:
-                    this.customProtectedBy = customProtectedBy;
-                    break;
-                case SPECTRE:
-                    this.customProtectedBy = customProtectedBy;
-                    break;
-                case BARON_OF_HELL:
-                    this.customProtectedBy = customProtectedBy;
-                    break;
-            }
+        this(type.ordinal(),customProtectedBy == null ? TypeRegistry.NONE : customProtectedBy.ordinal());
+    }
+
+    /**
+     * create a monster of any type in the TypeRegistry, including types defined at runtime
+     * @param type the id of the monster's type
+     * @param customProtectedBy the id of the monster's custom protector, or TypeRegistry.NONE to be protected according to its type
+     * @throws IllegalArgumentException if either id isn't registered
+     */
+    public Monster(int type, int customProtectedBy){
+        if(type < 0 || type >= TypeRegistry.getMonsterTypeCount() || customProtectedBy < TypeRegistry.NONE || customProtectedBy >= TypeRegistry.getMonsterTypeCount()){
+            throw new IllegalArgumentException();
+        }
+        this.id = nextId.getAndIncrement();
+        this.typeId = type;
+        this.monsterType = TypeRegistry.toMonsterType(type);
+        this.customProtectedBy = customProtectedBy;
+        this.monsterHealth = TypeRegistry.getAmmunitionCountNeededToKill(type);
     }
 
     /**
      * set the room that the Monster is located in
      * @param room
+     * @param roomIndex the monster's position in the room
      */
-    protected void setRoom(Room room){
+    protected void setRoom(Room room, int roomIndex){
         this.room = room;
+        this.roomIndex = roomIndex;
+    }
+
+    /**
+     * @return the room the monster is located in, or null if it isn't in one yet
+     */
+    protected Room getRoom(){
+        return this.room;
     }
 
+    /**
+     * @return the monster's position in its room
+     */
+    protected int getRoomIndex(){
+        return this.roomIndex;
+    }
+
+    /**
+     * @return this monster's type
+     * @throws IllegalStateException if the type was defined at runtime, and so has no MonsterType; use #getTypeId
+     */
     public MonsterType getMonsterType(){
+        if(this.monsterType == null){
+            throw new IllegalStateException(TypeRegistry.getMonsterTypeName(typeId) + " is not a built-in MonsterType");
+        }
         return this.monsterType;
     }
 
+    /**
+     * @return the TypeRegistry id of this monster's type
+     */
+    public int getTypeId(){
+        return this.typeId;
+    }
+
     /**
      * Attack this monster with the given weapon, firing the given number of rounds at it
      * @param weapon
@@ -67,12 +106,26 @@ public class Monster implements Comparable<Monster>{
      * @throws IllegalStateException if the monster is already dead
      */
     protected boolean attack(Weapon weapon, int rounds){
+        return attack(weapon == null ? TypeRegistry.NONE : weapon.ordinal(),rounds);
+    }
+
+    /**
+     * the same as #attack(Weapon, int), with the weapon given by its TypeRegistry id
+     */
+    protected boolean attack(int weapon, int rounds){
         if(isDead()){
             throw new IllegalStateException();
         }
-        if(weapon == null || this.getMonsterType().weaponNeededToKill.ordinal() > weapon.ordinal() || rounds < 1){
+        if(weapon < 0 || TypeRegistry.getWeaponNeededToKill(typeId) > weapon || rounds < 1){
             throw new IllegalArgumentException();
         }
+        int oldHealth = this.monsterHealth;
+        if(trail != null){
+            trail.record(() -> {
+                this.monsterHealth = oldHealth;
+                this.dead = false;
+            });
+        }
         if(rounds >= this.monsterHealth){
 
             this.dead = true;
@@ -83,6 +136,21 @@ public class Monster implements Comparable<Monster>{
         return false;
     }
 
+    /**
+     * attach the trail this monster records undo entries for attacks on, or detach it with null
+     * @param trail
+     */
+    protected void setTrail(Trail trail){
+        this.trail = trail;
+    }
+
+    /**
+     * @return the rounds still needed to kill this monster, which attacks that don't kill it lower
+     */
+    protected int getRemainingHealth(){
+        return this.monsterHealth;
+    }
+
     /**
      * @return is this monster dead?
      */
@@ -95,39 +163,46 @@ public class Monster implements Comparable<Monster>{
      * @return
      */
     public MonsterType getProtectedBy(){
-        if(this.customProtectedBy == null){
-            return monsterType.getProtectedBy();
+        int protector = getProtectorId();
+        if(protector == TypeRegistry.NONE){
+            return null;
+        }
+        MonsterType type = TypeRegistry.toMonsterType(protector);
+        if(type == null){
+            throw new IllegalStateException(TypeRegistry.getMonsterTypeName(protector) + " is not a built-in MonsterType");
         }
-        return this.customProtectedBy;
+        return type;
+    }
+
+    /**
+     * @return the TypeRegistry id of the type protecting this monster: its custom protector if it has one, otherwise its type's
+     * protector, or TypeRegistry.NONE
+     */
+    public int getProtectorId(){
+        return this.customProtectedBy == TypeRegistry.NONE ? TypeRegistry.getProtectedBy(typeId) : this.customProtectedBy;
+    }
+
+    /**
+     * @return this monster's id: monsters are numbered 0, 1, 2... in the order they are created
+     */
+    public long getId(){
+        return this.id;
     }
 
     /**
      * Used to sort a set of monsters into the order in which they must be killed, assuming they are in the same room.
      * If the parameter refers to this monster, return 0
-     * If this monster is protected by the other monster's type, return 1
-     * If this monster's type protects the other monster, return -1
-     * If this monster's ordinal is < the other's, return -1
-     * If this monster's ordinal is > the other's, retuen 1
-     * If(this.hashCode() < other.hashCode()), then return -1
-     * Otherwise, return 1
+     * Types are ordered so that every type comes after the type that protects it, and otherwise by id,
+     * i.e. IMP, SPECTRE, BARON_OF_HELL, DEMON; monsters of the same type are ordered by id.
+     * @see TypeRegistry#getKillOrder(int)
+     * This is a total order, so sorted sets of monsters behave consistently and are iterated the same way in every run.
+     * Custom protectors don't change the order; GameBot#getAllProtectorsInRoom finds them whatever the order.
      * @param other the other monster
      * @return see above
      */
     @Override
     public int compareTo(Monster other) {
-        if(other == this){
-            return 0;
-        }else if(this.getProtectedBy() == other.getMonsterType()){
-            return 1;
-        }else if(other.getProtectedBy() == this.getMonsterType()){
-            return -1;
-        }else if(this.getMonsterType().ordinal() < other.getMonsterType().ordinal()){
-            return -1;
-        }else if(this.getMonsterType().ordinal() > other.getMonsterType().ordinal()){
-            return 1;
-        }else if(this.hashCode() < other.hashCode()){
-            return -1;
-        }
-        return 1;
+        int byType = Integer.compare(TypeRegistry.getKillOrder(this.typeId),TypeRegistry.getKillOrder(other.typeId));
+        return byType != 0 ? byType : Long.compare(this.id,other.id);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package edu.yu.cs.intro.doomGame;
+
+/**
+ * The types of a room's monsters, packed as bit planes: bit i of plane p is bit p of the TypeRegistry id of monster i.
+ * Two planes hold the four built-in monster types, so a million monsters take a quarter of a megabyte; every doubling of the
+ * registered types adds a plane.
+ *
+ * Reductions over the monsters (how many of each type are live, and from that the danger level, health lost per encounter
+ * and ammunition needed) work on 64 monsters at a time: a type is matched against a word of every plane with a few bitwise
+ * operations, masked by the matching word of a dead-monster bitmap, and counted with Long#bitCount, which the JIT compiles to
+ * a single popcount instruction. A full room is read once, sequentially, so the reduction runs at about memory bandwidth.
+ * #countLiveByTypeScalar does the same monster by monster, as a fallback and a reference for checking the word path.
+ *
+ * Dead-monster bitmaps use the layout of BitSet#toLongArray(): bit i of the whole array is monster i, and may be shorter than
+ * the number of monsters.
+ */
+public class MonsterColumns {
+    private int size;
+    /**the number of registered types when the columns were built, and so the length of every count by type*/
+    private int typeCount;
+    private long[][] planes;
+
+    /**
+     * @param types the type of each monster, in order
+     * @throws IllegalArgumentException if types is null or contains null
+     */
+    public MonsterColumns(MonsterType[] types){
+        this(typeIds(types));
+    }
+
+    /**
+     * @param types the TypeRegistry id of each monster's type, in order
+     * @throws IllegalArgumentException if types is null or contains an id that isn't registered
+     */
+    public MonsterColumns(int[] types){
+        if(types == null){
+            throw new IllegalArgumentException();
+        }
+        this.size = types.length;
+        this.typeCount = TypeRegistry.getMonsterTypeCount();
+        this.planes = new long[Math.max(1,32 - Integer.numberOfLeadingZeros(typeCount - 1))][wordsFor(types.length)];
+        for(int i = 0; i < types.length; i++){
+            if(types[i] < 0 || types[i] >= typeCount){
+                throw new IllegalArgumentException();
+            }
+            for(int p = 0; p < planes.length; p++){
+                planes[p][i >>> 6] |= (long)((types[i] >>> p) & 1) << i;
+            }
+        }
+    }
+
+    private static int[] typeIds(MonsterType[] types){
+        if(types == null){
+            throw new IllegalArgumentException();
+        }
+        int[] ids = new int[types.length];
+        for(int i = 0; i < types.length; i++){
+            if(types[i] == null){
+                throw new IllegalArgumentException();
+            }
+            ids[i] = types[i].ordinal();
+        }
+        return ids;
+    }
+
+    /**
+     * @param monsters
+     * @return how many longs a bitmap of the given number of monsters takes
+     */
+    public static int wordsFor(int monsters){
+        return (monsters + 63) >>> 6;
+    }
+
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * @param monster
+     * @return the monster's type, or null if it was defined at runtime
+     * @see TypeRegistry#toMonsterType(int)
+     */
+    public MonsterType getMonsterType(int monster){
+        return TypeRegistry.toMonsterType(getTypeId(monster));
+    }
+
+    /**
+     * @param monster
+     * @return the TypeRegistry id of the monster's type
+     */
+    public int getTypeId(int monster){
+        if(monster < 0 || monster >= size){
+            throw new IndexOutOfBoundsException(monster);
+        }
+        int type = 0;
+        for(int p = 0; p < planes.length; p++){
+            type |= (int)((planes[p][monster >>> 6] >>> monster) & 1) << p;
+        }
+        return type;
+    }
+
+    /**
+     * @param dead a bitmap of the dead monsters, or null if none are
+     * @return how many monsters of each type are live, by TypeRegistry id
+     */
+    public int[] countLiveByType(long[] dead){
+        int[] counts = new int[typeCount];
+        int fullWords = size >>> 6;
+        for(int w = 0; w < fullWords; w++){
+            long live = dead == null || w >= dead.length ? -1L : ~dead[w];
+            countWord(w,live,counts);
+        }
+        if((size & 63) != 0){
+            //the last word's bits past the end of the room are zero in every plane, so they must be masked off
+            long inRoom = (1L << size) - 1;
+            long live = dead == null || fullWords >= dead.length ? inRoom : ~dead[fullWords] & inRoom;
+            countWord(fullWords,live,counts);
+        }
+        return counts;
+    }
+
+    private void countWord(int w, long live, int[] counts){
+        for(int t = 0; t < counts.length; t++){
+            long matching = live;
+            for(int p = 0; p < planes.length; p++){
+                long plane = planes[p][w];
+                matching &= ((t >>> p) & 1) != 0 ? plane : ~plane;
+            }
+            counts[t] += Long.bitCount(matching);
+        }
+    }
+
+    /**
+     * the same as #countLiveByType, one monster at a time
+     * @param dead a bitmap of the dead monsters, or null if none are
+     * @return how many monsters of each type are live, by TypeRegistry id
+     */
+    public int[] countLiveByTypeScalar(long[] dead){
+        int[] counts = new int[typeCount];
+        for(int i = 0; i < size; i++){
+            if(dead == null || (i >>> 6) >= dead.length || (dead[i >>> 6] & (1L << i)) == 0){
+                counts[getTypeId(i)]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @param countByType how many live monsters of each type a room has, by TypeRegistry id
+     * @return the room's danger level
+     * @see Room#getDangerLevel()
+     */
+    public static int getDangerLevel(int[] countByType){
+        int danger = 0;
+        for(int type = 0; type < countByType.length; type++){
+            danger += countByType[type] * (type + 1);
+        }
+        return danger;
+    }
+
+    /**
+     * @param countByType how many live monsters of each type a room has, by TypeRegistry id
+     * @return the health a player loses entering the room
+     * @see Room#getPlayerHealthLostPerEncounter()
+     */
+    public static int getPlayerHealthLostPerEncounter(int[] countByType){
+        int healthLost = 0;
+        for(int type = 0; type < countByType.length; type++){
+            healthLost += countByType[type] * TypeRegistry.getPlayerHealthLostPerExposure(type);
+        }
+        return healthLost;
+    }
+
+    /**
+     * @param countByType how many live monsters of each type a room has, by TypeRegistry id
+     * @return every weapon needed to kill all of the monsters, the total ammunition for each, and enough health to enter the room
+     * @see Room#getCompletionRequirement()
+     */
+    public static CapabilityVector getCompletionRequirement(int[] countByType){
+        CapabilityVector requirement = new CapabilityVector();
+        for(int type = 0; type < countByType.length; type++){
+            int count = countByType[type];
+            if(count > 0){
+                requirement.addAmmunition(TypeRegistry.getWeaponNeededToKill(type),count * TypeRegistry.getAmmunitionCountNeededToKill(type));
+            }
+        }
+        requirement.setHealth(getPlayerHealthLostPerEncounter(countByType));
+        return requirement;
+    }
+}
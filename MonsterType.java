@@ -5,10 +5,10 @@ package edu.yu.cs.intro.doomGame;
  * (Hat tip to Doom, 1993, by is Software)
  */
 public enum MonsterType {
-    IMP(Weapon.FIST,1,1),
-    DEMON(Weapon.CHAINSAW,1,1),
-    SPECTRE(Weapon.PISTOL,6,2),
-    BARON_OF_HELL(Weapon.SHOTGUN,12,3);
+    IMP(Weapon.FIST,1,1,null),
+    DEMON(Weapon.CHAINSAW,1,1,"BARON_OF_HELL"),
+    SPECTRE(Weapon.PISTOL,6,2,null),
+    BARON_OF_HELL(Weapon.SHOTGUN,12,3,"SPECTRE");
 
     /**what weapon is needed to kill this monster?*/
     protected final Weapon weaponNeededToKill;
@@ -16,17 +16,21 @@ public enum MonsterType {
     protected final int ammunitionCountNeededToKill;
     /**how much health does a player lose when he is in the same room as this type of monster?*/
     protected final int playerHealthLostPerExposure;
+    /**the name of the type that protects this one, or null; a name, since a constant can't refer to one declared after it*/
+    protected final String protectedByName;
 
     /**
      *
      * @param weaponNeededToKill
      * @param ammunitionCountNeededToKill
      * @param playerHealthLostPerExposure
+     * @param protectedByName
      */
-    MonsterType(Weapon weaponNeededToKill, int ammunitionCountNeededToKill, int playerHealthLostPerExposure) {
+    MonsterType(Weapon weaponNeededToKill, int ammunitionCountNeededToKill, int playerHealthLostPerExposure, String protectedByName) {
         this.weaponNeededToKill = weaponNeededToKill;
         this.ammunitionCountNeededToKill = ammunitionCountNeededToKill;
         this.playerHealthLostPerExposure = playerHealthLostPerExposure;
+        this.protectedByName = protectedByName;
     }
 
     /**
@@ -34,16 +38,7 @@ public enum MonsterType {
      * @return
      */
     public MonsterType getProtectedBy(){
-        switch (this){
-            case IMP:
-                return null;
-            case DEMON:
-                return BARON_OF_HELL;
-            case SPECTRE:
-                return null;
-            case BARON_OF_HELL:
-                return SPECTRE;
-        }
-        return null;
+        int protector = TypeRegistry.getProtectedBy(this.ordinal());
+        return protector == TypeRegistry.NONE ? null : TypeRegistry.toMonsterType(protector);
     }
 }
\ No newline at end of file
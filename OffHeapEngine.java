@@ -0,0 +1,81 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * A GameEngine that plays a game stored in an OffHeapWorld with GameBot's own moves, so there is one implementation of the
+ * game to keep right. Only the room being played is ever on the heap: for each room of a pass, its monsters are loaded from
+ * the world into a Room, GameBot#passThroughRoom plays it with the world's players, and what happened is written back to the
+ * world's records before the next room is loaded. The players are loaded once, asked in the world's order as GameBot asks
+ * the players of its set, and written back after every room.
+ *
+ * #play(OffHeapWorld) plays a world that only exists off-heap. #play(SortedSet, SortedSet) copies the rooms and players into
+ * a world, plays it there and copies the result back, so it can be checked against GameBot with a DifferentialRunner:
+ * DifferentialRunner edu.yu.cs.intro.doomGame.OffHeapEngine
+ * Only the built-in MonsterTypes and Weapons fit a world; see OffHeapWorld.
+ */
+public class OffHeapEngine implements GameEngine {
+
+    @Override
+    public String getName(){
+        return "OffHeap";
+    }
+
+    @Override
+    public boolean play(SortedSet<Room> rooms, SortedSet<Player> players){
+        OffHeapWorld world = OffHeapWorld.of(rooms,players);
+        boolean completed;
+        try{
+            completed = play(world);
+        }finally{
+            world.copyTo(rooms,players);
+        }
+        return completed;
+    }
+
+    /**
+     * Play the game stored in the given world, changing it as the game is played
+     * @param world
+     * @return true if all rooms were completed, false if not
+     * @see GameBot#play()
+     */
+    public boolean play(OffHeapWorld world){
+        //the players keep the world's order, which is the order of the set the world was copied from, whatever their state
+        Map<Player,Integer> positions = new IdentityHashMap<>();
+        for(int player = 0; player < world.getPlayerCount(); player++){
+            positions.put(world.loadPlayer(player),player);
+        }
+        SortedSet<Player> players = new TreeSet<>(Comparator.comparing(positions::get));
+        players.addAll(positions.keySet());
+        return GameBot.play(new RoomStore(){
+            @Override
+            public int getRoomCount(){
+                return world.getRoomCount();
+            }
+
+            @Override
+            public int getMonsterCount(int room){
+                return world.getRoom(room).getMonsterCount();
+            }
+
+            @Override
+            public boolean isCompleted(int room){
+                return world.getRoom(room).isCompleted();
+            }
+
+            @Override
+            public Room loadRoom(int room, Monster[] monsters){
+                return world.loadRoom(room,monsters);
+            }
+
+            @Override
+            public void storeRoom(int room, Monster[] monsters, SortedSet<Player> players){
+                world.storeRoom(room,monsters);
+                int position = 0;
+                for(Player player : players){
+                    world.storePlayer(position++,player);
+                }
+            }
+        },players);
+    }
+}
@@ -0,0 +1,712 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Stores the state of a whole game world - monsters, room aggregates and player inventories - off the Java heap, in direct
+ * buffers with a fixed record layout, so that worlds with hundreds of millions of monsters don't cost the garbage collector anything.
+ * Rooms and players are reached through thin RoomView and PlayerView objects that hold nothing but an index into the storage.
+ * OffHeapEngine plays a world with GameBot, one room at a time: #loadRoom and #loadPlayer build the Room and Player objects
+ * GameBot plays, and #storeRoom and #storePlayer write what happened to them back to the records.
+ *
+ * Monsters are stored contiguously per room, in the order they were added; a monster is identified by its global index.
+ * Monster record: type ordinal (byte), custom protector ordinal + 1, or 0 if none (byte), dead flag (byte), padding (byte), remaining health (int).
+ * Room record: first monster (long), monster count (int), live monster count (int), health lost per encounter (int), danger level (int),
+ * health won upon completion (int), mask of weapons won upon completion (int), mask of weapons ammunition is won for upon completion (int),
+ * ammunition won upon completion per weapon (int each).
+ * Player record: health (int), mask of weapons held (int), mask of weapons with ammunition held without the weapon (int),
+ * ammunition per weapon (int each), ammunition held without the weapon per weapon (int each).
+ *
+ * Only the built-in MonsterTypes and Weapons fit the fixed layout; types and weapons defined in the TypeRegistry at runtime can't be stored.
+ *
+ * Usage: OffHeapWorld [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * wounds and kills some monsters of generated scenarios and gives their players ammunition without the weapon, copies them into
+ * off-heap worlds with #of and back into fresh copies of the scenarios with #copyTo, and checks that nothing was lost on the way.
+ * Whether OffHeapEngine plays like GameBot is checked with DifferentialRunner edu.yu.cs.intro.doomGame.OffHeapEngine
+ */
+public class OffHeapWorld {
+    private static final int MONSTER_BYTES = 8;
+    private static final int MONSTER_TYPE = 0;
+    private static final int MONSTER_PROTECTED_BY = 1;
+    private static final int MONSTER_DEAD = 2;
+    private static final int MONSTER_HEALTH = 4;
+    /**monsters per buffer, so no single buffer passes the 2GB limit of a ByteBuffer*/
+    private static final int MONSTERS_PER_CHUNK = 1 << 26;
+
+    private static final int ROOM_FIRST_MONSTER = 0;
+    private static final int ROOM_MONSTER_COUNT = 8;
+    private static final int ROOM_LIVE_COUNT = 12;
+    private static final int ROOM_HEALTH_LOST_PER_ENCOUNTER = 16;
+    private static final int ROOM_DANGER_LEVEL = 20;
+    private static final int ROOM_HEALTH_WON = 24;
+    private static final int ROOM_WEAPONS_WON = 28;
+    private static final int ROOM_AMMO_WON_HELD = 32;
+    private static final int ROOM_AMMO_WON = 36;
+    private static final int ROOM_BYTES = ROOM_AMMO_WON + 4 * Weapon.values().length;
+
+    private static final int PLAYER_HEALTH = 0;
+    private static final int PLAYER_WEAPONS = 4;
+    private static final int PLAYER_AMMO_WITHOUT_WEAPON_HELD = 8;
+    private static final int PLAYER_AMMO = 12;
+    private static final int PLAYER_AMMO_WITHOUT_WEAPON = PLAYER_AMMO + 4 * Weapon.values().length;
+    private static final int PLAYER_BYTES = PLAYER_AMMO_WITHOUT_WEAPON + 4 * Weapon.values().length;
+
+    private ByteBuffer[] monsterChunks;
+    private ByteBuffer roomStorage;
+    private ByteBuffer playerStorage;
+    private String[] roomNames;
+    private String[] playerNames;
+    private long monsterCapacity;
+    private long monsterCount;
+    private int roomCount;
+    private int playerCount;
+
+    /**
+     * @param roomCapacity the most rooms this world can hold
+     * @param monsterCapacity the most monsters this world can hold, across all rooms
+     * @param playerCapacity the most players this world can hold
+     * @throws IllegalArgumentException if any capacity is < 0, or the rooms or players wouldn't fit in a single buffer of at most 2GB
+     */
+    public OffHeapWorld(int roomCapacity, long monsterCapacity, int playerCapacity){
+        if(roomCapacity < 0 || monsterCapacity < 0 || playerCapacity < 0
+                || roomCapacity > Integer.MAX_VALUE / ROOM_BYTES || playerCapacity > Integer.MAX_VALUE / PLAYER_BYTES){
+            throw new IllegalArgumentException();
+        }
+        this.monsterCapacity = monsterCapacity;
+        int chunks = (int)((monsterCapacity + MONSTERS_PER_CHUNK - 1) / MONSTERS_PER_CHUNK);
+        this.monsterChunks = new ByteBuffer[chunks];
+        for(int i = 0; i < chunks; i++){
+            long monstersInChunk = Math.min(MONSTERS_PER_CHUNK,monsterCapacity - (long)i * MONSTERS_PER_CHUNK);
+            monsterChunks[i] = ByteBuffer.allocateDirect((int)monstersInChunk * MONSTER_BYTES).order(ByteOrder.nativeOrder());
+        }
+        this.roomStorage = ByteBuffer.allocateDirect(roomBase(roomCapacity)).order(ByteOrder.nativeOrder());
+        this.playerStorage = ByteBuffer.allocateDirect(playerBase(playerCapacity)).order(ByteOrder.nativeOrder());
+        this.roomNames = new String[roomCapacity];
+        this.playerNames = new String[playerCapacity];
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed","42")));
+        int scenarios = 0;
+        int mismatches = 0;
+        for(int i = 0; i < count; i++){
+            List<List<String>> messages;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                messages = ScenarioCodec.readMessages(reader);
+            }
+            for(List<String> lines : messages){
+                ScenarioCodec.Scenario original = ScenarioCodec.decodeWorld(lines);
+                ScenarioCodec.Scenario copy = ScenarioCodec.decodeWorld(lines);
+                for(Room room : original.getRooms()){
+                    for(Monster monster : room.getLiveMonstersClone()){
+                        int weapon = TypeRegistry.getWeaponNeededToKill(monster.getTypeId());
+                        int roll = random.nextInt(4);
+                        if(roll == 0){
+                            monster.attack(weapon,monster.getRemainingHealth());
+                            room.monsterKilled(monster);
+                        }else if(roll == 1 && monster.getRemainingHealth() > 1){
+                            monster.attack(weapon,1 + random.nextInt(monster.getRemainingHealth() - 1));
+                        }
+                    }
+                }
+                for(Player player : original.getPlayers()){
+                    Weapon weapon = Weapon.values()[random.nextInt(Weapon.values().length)];
+                    if(!player.hasWeapon(weapon)){
+                        player.addAmmunition(weapon,random.nextInt(10));
+                    }
+                }
+                OffHeapWorld.of(original.getRooms(),original.getPlayers()).copyTo(copy.getRooms(),copy.getPlayers());
+                String expected = describe(original);
+                String actual = describe(copy);
+                scenarios++;
+                if(!expected.equals(actual)){
+                    mismatches++;
+                    if(mismatches <= 5){
+                        System.out.println("expected:\n" + expected + "got:\n" + actual);
+                    }
+                }
+            }
+        }
+        System.out.println(mismatches + " mismatches over " + scenarios + " scenarios");
+        if(mismatches > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return every monster's liveness and remaining health, and every player's health, weapons and ammunition, one room or player per line
+     */
+    private static String describe(ScenarioCodec.Scenario scenario){
+        StringBuilder state = new StringBuilder();
+        for(Room room : scenario.getRooms()){
+            state.append("room ").append(room.getName()).append(" danger=").append(room.getDangerLevel())
+                    .append(" exposure=").append(room.getPlayerHealthLostPerEncounter());
+            for(Monster monster : room.getMonsters()){
+                state.append(' ').append(TypeRegistry.getMonsterTypeName(monster.getTypeId())).append(room.isLive(monster) ? "=" : "=dead/")
+                        .append(monster.getRemainingHealth());
+            }
+            state.append('\n');
+        }
+        for(Player player : scenario.getPlayers()){
+            state.append("player ").append(player.getName()).append(" health=").append(player.getHealth());
+            for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon)){
+                    state.append(' ').append(TypeRegistry.getWeaponName(weapon)).append('=').append(player.getAmmunitionRoundsForWeapon(weapon));
+                }
+            }
+            state.append(" without=").append(new TreeMap<>(player.getAmmunitionWithoutWeapon())).append('\n');
+        }
+        return state.toString();
+    }
+
+    /**
+     * copy the current state of the given rooms and players into a new off-heap world: every monster with its remaining health,
+     * and every player with its weapons, ammunition and ammunition held without the weapon.
+     * Rooms, monsters and players get indexes in the iteration order of the given sets. A monster is dead if its room has marked it dead.
+     * @param rooms
+     * @param players
+     * @return the new world
+     * @throws IllegalArgumentException if a monster, its protector, or a player's weapon was defined in the TypeRegistry at runtime
+     * @see #copyTo(SortedSet, SortedSet)
+     */
+    public static OffHeapWorld of(SortedSet<Room> rooms, SortedSet<Player> players){
+        long monsters = 0;
+        for(Room room : rooms){
+            monsters += room.getMonsters().size();
+        }
+        OffHeapWorld world = new OffHeapWorld(rooms.size(),monsters,players.size());
+        for(Room room : rooms){
+            int index = world.addRoom(room.getWeaponsWonUponCompletion(),room.getAmmoWonUponCompletion(),room.getHealthWonUponCompletion(),room.getName());
+            for(Monster monster : room.getMonsters()){
+                MonsterType type = TypeRegistry.toMonsterType(monster.getTypeId());
+                int protector = monster.getProtectorId();
+                if(type == null || (protector != TypeRegistry.NONE && TypeRegistry.toMonsterType(protector) == null)){
+                    throw new IllegalArgumentException(TypeRegistry.getMonsterTypeName(monster.getTypeId()) + " doesn't fit an off-heap world");
+                }
+                MonsterType custom = protector == TypeRegistry.getProtectedBy(monster.getTypeId()) ? null : TypeRegistry.toMonsterType(protector);
+                long added = world.addMonster(index,type,custom);
+                if(!room.isLive(monster)){
+                    world.markDead(added);
+                }
+                world.setRemainingHealth(added,monster.getRemainingHealth());
+            }
+        }
+        for(Player player : players){
+            for(int weapon = Weapon.values().length; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon) || player.getAmmunitionWithoutWeapon().containsKey(weapon)){
+                    throw new IllegalArgumentException(TypeRegistry.getWeaponName(weapon) + " doesn't fit an off-heap world");
+                }
+            }
+            world.storePlayer(world.addPlayer(player.getName(),player.getHealth()),player);
+        }
+        return world;
+    }
+
+    /**
+     * Copy this world's state back into the rooms and players it was copied from by #of, e.g. after OffHeapEngine played it:
+     * monsters dead here are killed in their rooms, live monsters are left with the health they have here, and every player is given
+     * the health, weapons and ammunition it has here. Monsters can't be brought back to life, so a monster dead in its room must be dead here too.
+     * @param rooms the rooms this world was copied from, in the same state or an earlier one
+     * @param players the players this world was copied from
+     * @throws IllegalArgumentException if the rooms, their monsters or the players don't line up with this world's
+     */
+    public void copyTo(SortedSet<Room> rooms, SortedSet<Player> players){
+        if(rooms.size() != roomCount || players.size() != playerCount){
+            throw new IllegalArgumentException();
+        }
+        //check that everything lines up before changing anything
+        int roomIndex = 0;
+        for(Room room : rooms){
+            RoomView view = getRoom(roomIndex++);
+            if(room.getMonsters().size() != view.getMonsterCount()){
+                throw new IllegalArgumentException(room.getName() + " doesn't line up with " + view.getName());
+            }
+            long monster = view.getFirstMonster();
+            for(Monster heapMonster : room.getMonsters()){
+                if(heapMonster.getTypeId() != getMonsterType(monster).ordinal() || (!room.isLive(heapMonster) && !isDead(monster))
+                        || (!isDead(monster) && heapMonster.getRemainingHealth() < getRemainingHealth(monster))){
+                    throw new IllegalArgumentException(room.getName() + " doesn't line up with " + view.getName());
+                }
+                monster++;
+            }
+        }
+        roomIndex = 0;
+        for(Room room : rooms){
+            long monster = getRoom(roomIndex++).getFirstMonster();
+            for(Monster heapMonster : room.getMonsters()){
+                int weapon = TypeRegistry.getWeaponNeededToKill(heapMonster.getTypeId());
+                if(room.isLive(heapMonster) && isDead(monster)){
+                    if(!heapMonster.isDead()){
+                        heapMonster.attack(weapon,heapMonster.getRemainingHealth());
+                    }
+                    room.monsterKilled(heapMonster);
+                }else if(!heapMonster.isDead() && heapMonster.getRemainingHealth() > getRemainingHealth(monster)){
+                    heapMonster.attack(weapon,heapMonster.getRemainingHealth() - getRemainingHealth(monster));
+                }
+                monster++;
+            }
+        }
+        int playerIndex = 0;
+        for(Player player : players){
+            restore(player,getPlayer(playerIndex++));
+        }
+    }
+
+    /**
+     * Load the given room into new objects GameBot can play: a Room holding every monster of the room, dead or alive, with its
+     * type, custom protector and remaining health. Only the room being played has to be on the heap; #storeRoom writes what
+     * happened to it back.
+     * @param room
+     * @param monsters filled with the loaded monsters, in the order they are stored; must be as long as the room's monster count
+     * @return the loaded room
+     * @throws IllegalArgumentException if monsters isn't as long as the room's monster count
+     */
+    protected Room loadRoom(int room, Monster[] monsters){
+        RoomView view = getRoom(room);
+        if(monsters.length != view.getMonsterCount()){
+            throw new IllegalArgumentException();
+        }
+        Set<Weapon> weaponsWon = EnumSet.noneOf(Weapon.class);
+        Map<Weapon,Integer> ammoWon = new EnumMap<>(Weapon.class);
+        for(Weapon weapon : Weapon.values()){
+            if(view.isWeaponWonUponCompletion(weapon)){
+                weaponsWon.add(weapon);
+            }
+            if(view.isAmmoWonUponCompletion(weapon)){
+                ammoWon.put(weapon,view.getAmmoWonUponCompletion(weapon));
+            }
+        }
+        SortedSet<Monster> all = new TreeSet<>();
+        long first = view.getFirstMonster();
+        for(int i = 0; i < monsters.length; i++){
+            int protectedBy = monsterChunk(first + i).get(monsterOffset(first + i) + MONSTER_PROTECTED_BY);
+            monsters[i] = new Monster(getMonsterType(first + i).ordinal(),protectedBy == 0 ? TypeRegistry.NONE : protectedBy - 1);
+            all.add(monsters[i]);
+        }
+        Room loaded = new Room(all,weaponsWon,ammoWon,view.getHealthWonUponCompletion(),view.getName());
+        for(int i = 0; i < monsters.length; i++){
+            Monster monster = monsters[i];
+            int weapon = TypeRegistry.getWeaponNeededToKill(monster.getTypeId());
+            if(isDead(first + i)){
+                monster.attack(weapon,monster.getRemainingHealth());
+                loaded.monsterKilled(monster);
+            }else if(getRemainingHealth(first + i) < monster.getRemainingHealth()){
+                monster.attack(weapon,monster.getRemainingHealth() - getRemainingHealth(first + i));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * write what happened to a room loaded by #loadRoom back to its records: monsters killed there are marked dead, which takes
+     * them out of the room's aggregates, and live ones keep the health they were left with
+     * @param room
+     * @param monsters the monsters #loadRoom filled in
+     */
+    protected void storeRoom(int room, Monster[] monsters){
+        long first = getRoom(room).getFirstMonster();
+        for(int i = 0; i < monsters.length; i++){
+            if(!monsters[i].isDead()){
+                setRemainingHealth(first + i,monsters[i].getRemainingHealth());
+            }else if(!isDead(first + i)){
+                markDead(first + i);
+            }
+        }
+    }
+
+    /**
+     * @param player
+     * @return a new Player with the name, health, weapons and ammunition the given player has here
+     */
+    protected Player loadPlayer(int player){
+        PlayerView view = getPlayer(player);
+        Player loaded = new Player(view.getName(),view.getHealth());
+        restore(loaded,view);
+        return loaded;
+    }
+
+    /**
+     * replace the given player's record with the health, weapons and ammunition of the given Player
+     * @param player
+     * @param from
+     */
+    protected void storePlayer(int player, Player from){
+        checkIndex(player,playerCount);
+        int base = playerBase(player);
+        playerStorage.putInt(base + PLAYER_HEALTH,from.getHealth());
+        playerStorage.putInt(base + PLAYER_WEAPONS,0);
+        playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON_HELD,0);
+        for(Weapon weapon : Weapon.values()){
+            playerStorage.putInt(base + PLAYER_AMMO + 4 * weapon.ordinal(),0);
+            playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON + 4 * weapon.ordinal(),0);
+            if(from.hasWeapon(weapon)){
+                setWeapon(player,weapon,from.getAmmunitionRoundsForWeapon(weapon));
+            }
+        }
+        for(Map.Entry<Integer,Integer> ammo : from.getAmmunitionWithoutWeapon().entrySet()){
+            setAmmunitionWithoutWeapon(player,Weapon.values()[ammo.getKey()],ammo.getValue());
+        }
+    }
+
+    private static void restore(Player player, PlayerView view){
+        Map<Integer,Integer> weaponAmmo = new HashMap<>();
+        Map<Integer,Integer> ammoWithoutWeapon = new HashMap<>();
+        for(Weapon weapon : Weapon.values()){
+            if(view.hasWeapon(weapon)){
+                weaponAmmo.put(weapon.ordinal(),view.getAmmunitionRoundsForWeapon(weapon));
+            }
+        }
+        for(Map.Entry<Weapon,Integer> ammo : view.getAmmunitionWithoutWeapon().entrySet()){
+            ammoWithoutWeapon.put(ammo.getKey().ordinal(),ammo.getValue());
+        }
+        player.restore(view.getHealth(),weaponAmmo,ammoWithoutWeapon);
+    }
+
+    /**
+     * add a new room, with no monsters yet
+     * @param weaponsWonUponCompletion
+     * @param ammoWonUponCompletion
+     * @param healthWonUponCompletion
+     * @param name
+     * @return the index of the new room
+     * @throws IllegalStateException if the world is already holding as many rooms as it can
+     */
+    public int addRoom(Set<Weapon> weaponsWonUponCompletion, Map<Weapon,Integer> ammoWonUponCompletion, int healthWonUponCompletion, String name){
+        if(roomCount == roomNames.length){
+            throw new IllegalStateException();
+        }
+        int room = roomCount++;
+        int base = roomBase(room);
+        roomStorage.putLong(base + ROOM_FIRST_MONSTER,monsterCount);
+        roomStorage.putInt(base + ROOM_HEALTH_WON,healthWonUponCompletion);
+        int weaponsWon = 0;
+        for(Weapon weapon : weaponsWonUponCompletion){
+            weaponsWon |= 1 << weapon.ordinal();
+        }
+        roomStorage.putInt(base + ROOM_WEAPONS_WON,weaponsWon);
+        int ammoWon = 0;
+        for(Map.Entry<Weapon,Integer> ammo : ammoWonUponCompletion.entrySet()){
+            ammoWon |= 1 << ammo.getKey().ordinal();
+            roomStorage.putInt(base + ROOM_AMMO_WON + 4 * ammo.getKey().ordinal(),ammo.getValue());
+        }
+        roomStorage.putInt(base + ROOM_AMMO_WON_HELD,ammoWon);
+        roomNames[room] = name;
+        return room;
+    }
+
+    /**
+     * add a new, live monster to the given room. Monsters of a room are stored together, so they can only be added to the most recently added room.
+     * @param room
+     * @param type
+     * @param customProtectedBy the monster's custom protector, or null if it is protected according to its type
+     * @return the index of the new monster
+     * @throws IllegalStateException if the room isn't the most recently added one, or the world is already holding as many monsters as it can
+     */
+    public long addMonster(int room, MonsterType type, MonsterType customProtectedBy){
+        if(room != roomCount - 1 || monsterCount == monsterCapacity){
+            throw new IllegalStateException();
+        }
+        long monster = monsterCount++;
+        ByteBuffer chunk = monsterChunk(monster);
+        int offset = monsterOffset(monster);
+        chunk.put(offset + MONSTER_TYPE,(byte)type.ordinal());
+        chunk.put(offset + MONSTER_PROTECTED_BY,(byte)(customProtectedBy == null ? 0 : customProtectedBy.ordinal() + 1));
+        chunk.put(offset + MONSTER_DEAD,(byte)0);
+        chunk.putInt(offset + MONSTER_HEALTH,type.ammunitionCountNeededToKill);
+        int base = roomBase(room);
+        addToRoomInt(base + ROOM_MONSTER_COUNT,1);
+        addToRoomInt(base + ROOM_LIVE_COUNT,1);
+        addToRoomInt(base + ROOM_HEALTH_LOST_PER_ENCOUNTER,type.playerHealthLostPerExposure);
+        addToRoomInt(base + ROOM_DANGER_LEVEL,type.ordinal() + 1);
+        return monster;
+    }
+
+    /**
+     * add a new player, who holds only a fist with no ammunition
+     * @param name
+     * @param health
+     * @return the index of the new player
+     * @throws IllegalStateException if the world is already holding as many players as it can
+     */
+    public int addPlayer(String name, int health){
+        if(playerCount == playerNames.length){
+            throw new IllegalStateException();
+        }
+        int player = playerCount++;
+        int base = playerBase(player);
+        playerStorage.putInt(base + PLAYER_HEALTH,health);
+        playerStorage.putInt(base + PLAYER_WEAPONS,1 << Weapon.FIST.ordinal());
+        playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON_HELD,0);
+        for(Weapon weapon : Weapon.values()){
+            playerStorage.putInt(base + PLAYER_AMMO + 4 * weapon.ordinal(),0);
+            playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON + 4 * weapon.ordinal(),0);
+        }
+        playerNames[player] = name;
+        return player;
+    }
+
+    public long getMonsterCount(){
+        return this.monsterCount;
+    }
+
+    public int getRoomCount(){
+        return this.roomCount;
+    }
+
+    public int getPlayerCount(){
+        return this.playerCount;
+    }
+
+    public RoomView getRoom(int room){
+        checkIndex(room,roomCount);
+        return new RoomView(room);
+    }
+
+    public PlayerView getPlayer(int player){
+        checkIndex(player,playerCount);
+        return new PlayerView(player);
+    }
+
+    public MonsterType getMonsterType(long monster){
+        return MonsterType.values()[monsterChunk(monster).get(monsterOffset(monster) + MONSTER_TYPE)];
+    }
+
+    /**
+     * @param monster
+     * @return the monster's custom protector if it has one, otherwise the protector of its type
+     * @see Monster#getProtectedBy()
+     */
+    public MonsterType getProtectedBy(long monster){
+        int protectedBy = monsterChunk(monster).get(monsterOffset(monster) + MONSTER_PROTECTED_BY);
+        return protectedBy == 0 ? getMonsterType(monster).getProtectedBy() : MonsterType.values()[protectedBy - 1];
+    }
+
+    public boolean isDead(long monster){
+        return monsterChunk(monster).get(monsterOffset(monster) + MONSTER_DEAD) != 0;
+    }
+
+    /**
+     * @param monster
+     * @return the rounds still needed to kill the monster
+     */
+    public int getRemainingHealth(long monster){
+        return monsterChunk(monster).getInt(monsterOffset(monster) + MONSTER_HEALTH);
+    }
+
+    private void setRemainingHealth(long monster, int health){
+        monsterChunk(monster).putInt(monsterOffset(monster) + MONSTER_HEALTH,health);
+    }
+
+    /**
+     * mark the given live monster as dead, and take it out of its room's aggregates
+     * @param monster
+     */
+    private void markDead(long monster){
+        MonsterType type = getMonsterType(monster);
+        monsterChunk(monster).put(monsterOffset(monster) + MONSTER_DEAD,(byte)1);
+        int base = roomBase(roomOf(monster));
+        addToRoomInt(base + ROOM_LIVE_COUNT,-1);
+        addToRoomInt(base + ROOM_HEALTH_LOST_PER_ENCOUNTER,-type.playerHealthLostPerExposure);
+        addToRoomInt(base + ROOM_DANGER_LEVEL,-(type.ordinal() + 1));
+    }
+
+    /**
+     * @param monster
+     * @return the index of the room the given monster is in, found by binary search over the rooms' first monsters
+     */
+    public int roomOf(long monster){
+        checkIndex(monster,monsterCount);
+        int low = 0;
+        int high = roomCount - 1;
+        while(low < high){
+            int mid = (low + high + 1) >>> 1;
+            if(roomStorage.getLong(roomBase(mid) + ROOM_FIRST_MONSTER) <= monster){
+                low = mid;
+            }else{
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void setWeapon(int player, Weapon weapon, int ammunition){
+        int base = playerBase(player);
+        playerStorage.putInt(base + PLAYER_WEAPONS,playerStorage.getInt(base + PLAYER_WEAPONS) | 1 << weapon.ordinal());
+        playerStorage.putInt(base + PLAYER_AMMO + 4 * weapon.ordinal(),ammunition);
+    }
+
+    private void setAmmunitionWithoutWeapon(int player, Weapon weapon, int ammunition){
+        int base = playerBase(player);
+        playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON_HELD,playerStorage.getInt(base + PLAYER_AMMO_WITHOUT_WEAPON_HELD) | 1 << weapon.ordinal());
+        playerStorage.putInt(base + PLAYER_AMMO_WITHOUT_WEAPON + 4 * weapon.ordinal(),ammunition);
+    }
+
+    private void addToRoomInt(int position, int change){
+        roomStorage.putInt(position,roomStorage.getInt(position) + change);
+    }
+
+    private ByteBuffer monsterChunk(long monster){
+        return monsterChunks[(int)(monster / MONSTERS_PER_CHUNK)];
+    }
+
+    /**
+     * @return the position of the given room's record; computed in long, though it fits an int for any room within the capacity
+     */
+    private static int roomBase(int room){
+        return Math.toIntExact((long)room * ROOM_BYTES);
+    }
+
+    private static int playerBase(int player){
+        return Math.toIntExact((long)player * PLAYER_BYTES);
+    }
+
+    private static int monsterOffset(long monster){
+        return (int)(monster % MONSTERS_PER_CHUNK) * MONSTER_BYTES;
+    }
+
+    private static void checkIndex(long index, long count){
+        if(index < 0 || index >= count){
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * A room of an OffHeapWorld. Holds only the room's index; every read and write goes to the off-heap storage.
+     * @see Room
+     */
+    public class RoomView {
+        private int room;
+
+        private RoomView(int room){
+            this.room = room;
+        }
+
+        public int getIndex(){
+            return this.room;
+        }
+
+        public String getName(){
+            return roomNames[room];
+        }
+
+        /**
+         * @return the index of the first monster in this room; the room's monsters are the getMonsterCount() monsters starting at it
+         */
+        public long getFirstMonster(){
+            return roomStorage.getLong(roomBase(room) + ROOM_FIRST_MONSTER);
+        }
+
+        public int getMonsterCount(){
+            return roomStorage.getInt(roomBase(room) + ROOM_MONSTER_COUNT);
+        }
+
+        public int getLiveMonsterCount(){
+            return roomStorage.getInt(roomBase(room) + ROOM_LIVE_COUNT);
+        }
+
+        /**
+         * @see Room#getPlayerHealthLostPerEncounter()
+         */
+        public int getPlayerHealthLostPerEncounter(){
+            return roomStorage.getInt(roomBase(room) + ROOM_HEALTH_LOST_PER_ENCOUNTER);
+        }
+
+        /**
+         * @see Room#getDangerLevel()
+         */
+        public int getDangerLevel(){
+            return roomStorage.getInt(roomBase(room) + ROOM_DANGER_LEVEL);
+        }
+
+        public boolean isCompleted(){
+            return getLiveMonsterCount() == 0;
+        }
+
+        public int getHealthWonUponCompletion(){
+            return roomStorage.getInt(roomBase(room) + ROOM_HEALTH_WON);
+        }
+
+        public boolean isWeaponWonUponCompletion(Weapon weapon){
+            return (roomStorage.getInt(roomBase(room) + ROOM_WEAPONS_WON) & 1 << weapon.ordinal()) != 0;
+        }
+
+        /**
+         * @return true if the room rewards ammunition for the weapon, even if it is no rounds
+         */
+        public boolean isAmmoWonUponCompletion(Weapon weapon){
+            return (roomStorage.getInt(roomBase(room) + ROOM_AMMO_WON_HELD) & 1 << weapon.ordinal()) != 0;
+        }
+
+        public int getAmmoWonUponCompletion(Weapon weapon){
+            return roomStorage.getInt(roomBase(room) + ROOM_AMMO_WON + 4 * weapon.ordinal());
+        }
+    }
+
+    /**
+     * A player of an OffHeapWorld. Holds only the player's index; every read and write goes to the off-heap storage.
+     * @see Player
+     */
+    public class PlayerView {
+        private int player;
+
+        private PlayerView(int player){
+            this.player = player;
+        }
+
+        public int getIndex(){
+            return this.player;
+        }
+
+        public String getName(){
+            return playerNames[player];
+        }
+
+        public int getHealth(){
+            return playerStorage.getInt(playerBase(player) + PLAYER_HEALTH);
+        }
+
+        public boolean isDead(){
+            return getHealth() <= 0;
+        }
+
+        public boolean hasWeapon(Weapon weapon){
+            return (playerStorage.getInt(playerBase(player) + PLAYER_WEAPONS) & 1 << weapon.ordinal()) != 0;
+        }
+
+        /**
+         * @return the ammunition for the weapon if the player has it, otherwise the ammunition held without it, or 0 if none is
+         */
+        public int getAmmunitionRoundsForWeapon(Weapon weapon){
+            int slot = hasWeapon(weapon) ? PLAYER_AMMO : PLAYER_AMMO_WITHOUT_WEAPON;
+            return playerStorage.getInt(playerBase(player) + slot + 4 * weapon.ordinal());
+        }
+
+        /**
+         * @return the ammunition this player holds for weapons it doesn't have
+         * @see Player#addAmmunition(Weapon, int)
+         */
+        public Map<Weapon,Integer> getAmmunitionWithoutWeapon(){
+            int held = playerStorage.getInt(playerBase(player) + PLAYER_AMMO_WITHOUT_WEAPON_HELD);
+            Map<Weapon,Integer> ammo = new EnumMap<>(Weapon.class);
+            for(Weapon weapon : Weapon.values()){
+                if((held & 1 << weapon.ordinal()) != 0){
+                    ammo.put(weapon,playerStorage.getInt(playerBase(player) + PLAYER_AMMO_WITHOUT_WEAPON + 4 * weapon.ordinal()));
+                }
+            }
+            return ammo;
+        }
+    }
+}
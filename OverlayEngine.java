@@ -0,0 +1,107 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * A GameEngine that plays a game of RoomOverlays over shared RoomTemplates with GameBot's own moves. Only the room being
+ * played is ever a Room: for each room of a pass, the overlay is loaded into a Room from its template, GameBot#passThroughRoom
+ * plays it, and what happened is stored back in the overlay; see GameBot#play(RoomStore, SortedSet). The players are the
+ * game's own Player objects throughout.
+ *
+ * #play(List, SortedSet) plays a game that only exists as overlays. #play(SortedSet, SortedSet) makes a template and an overlay
+ * in the same state for each room, plays them and copies the result back, so it can be checked against GameBot with a DifferentialRunner:
+ * DifferentialRunner edu.yu.cs.intro.doomGame.OverlayEngine
+ * Only the built-in MonsterTypes fit a template.
+ */
+public class OverlayEngine implements GameEngine {
+
+    @Override
+    public String getName(){
+        return "Overlay";
+    }
+
+    @Override
+    public boolean play(SortedSet<Room> rooms, SortedSet<Player> players){
+        List<RoomOverlay> overlays = new ArrayList<>(rooms.size());
+        for(Room room : rooms){
+            RoomOverlay overlay = RoomTemplate.of(room).newOverlay();
+            int index = 0;
+            for(Monster monster : room.getMonsters()){
+                Weapon weapon = overlay.getTemplate().getMonsterType(index).weaponNeededToKill;
+                if(!room.isLive(monster)){
+                    overlay.attack(index,weapon,overlay.getRemainingHealth(index));
+                }else if(monster.getRemainingHealth() < overlay.getRemainingHealth(index)){
+                    overlay.attack(index,weapon,overlay.getRemainingHealth(index) - monster.getRemainingHealth());
+                }
+                index++;
+            }
+            overlays.add(overlay);
+        }
+        boolean completed;
+        try{
+            completed = play(overlays,players);
+        }finally{
+            copyTo(overlays,rooms);
+        }
+        return completed;
+    }
+
+    /**
+     * Play the game whose rooms are the given overlays, changing them and the players as the game is played
+     * @param rooms the overlays, in the order the game's rooms are passed through
+     * @param players
+     * @return true if all rooms were completed, false if not
+     * @see GameBot#play()
+     */
+    public boolean play(List<RoomOverlay> rooms, SortedSet<Player> players){
+        return GameBot.play(new RoomStore(){
+            @Override
+            public int getRoomCount(){
+                return rooms.size();
+            }
+
+            @Override
+            public int getMonsterCount(int room){
+                return rooms.get(room).getTemplate().getMonsterCount();
+            }
+
+            @Override
+            public boolean isCompleted(int room){
+                return rooms.get(room).isCompleted();
+            }
+
+            @Override
+            public Room loadRoom(int room, Monster[] monsters){
+                return rooms.get(room).load(monsters);
+            }
+
+            @Override
+            public void storeRoom(int room, Monster[] monsters, SortedSet<Player> players){
+                rooms.get(room).store(monsters);
+            }
+        },players);
+    }
+
+    /**
+     * kill and wound the monsters of the rooms the overlays were made from as they were killed and wounded in the overlays
+     */
+    private static void copyTo(List<RoomOverlay> overlays, SortedSet<Room> rooms){
+        int roomIndex = 0;
+        for(Room room : rooms){
+            RoomOverlay overlay = overlays.get(roomIndex++);
+            int index = 0;
+            for(Monster monster : room.getMonsters()){
+                int weapon = TypeRegistry.getWeaponNeededToKill(monster.getTypeId());
+                if(room.isLive(monster) && overlay.isDead(index)){
+                    if(!monster.isDead()){
+                        monster.attack(weapon,monster.getRemainingHealth());
+                    }
+                    room.monsterKilled(monster);
+                }else if(!monster.isDead() && monster.getRemainingHealth() > overlay.getRemainingHealth(index)){
+                    monster.attack(weapon,monster.getRemainingHealth() - overlay.getRemainingHealth(index));
+                }
+                index++;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package edu.yu.cs.intro.doomGame;
+
+/**
+ * A snapshot of how far a GameBot has got in playing its game, published while it plays and returned when it stops.
+ * @see GameBot#play(PlaySession)
+ */
+public class PlayProgress {
+    /**
+     * Whether the bot is still playing, and if not, why it stopped
+     */
+    public enum Status {
+        /**still playing*/
+        RUNNING,
+        /**every room was completed*/
+        COMPLETED,
+        /**a pass through the rooms completed no new room, so no more progress can be made*/
+        STUCK,
+        /**the session's time or step budget ran out*/
+        OUT_OF_BUDGET,
+        /**the session was cancelled*/
+        CANCELLED;
+    }
+
+    private Status status;
+    private int passes;
+    private int roomsCompleted;
+    private int totalRooms;
+    private long kills;
+    private long elapsedNanos;
+
+    protected PlayProgress(Status status, int passes, int roomsCompleted, int totalRooms, long kills, long elapsedNanos){
+        this.status = status;
+        this.passes = passes;
+        this.roomsCompleted = roomsCompleted;
+        this.totalRooms = totalRooms;
+        this.kills = kills;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Status getStatus(){
+        return this.status;
+    }
+
+    /**
+     * @return has the bot stopped playing?
+     */
+    public boolean isFinished(){
+        return this.status != Status.RUNNING;
+    }
+
+    /**
+     * @return the number of full passes through the rooms made so far
+     */
+    public int getPasses(){
+        return this.passes;
+    }
+
+    public int getRoomsCompleted(){
+        return this.roomsCompleted;
+    }
+
+    public int getTotalRooms(){
+        return this.totalRooms;
+    }
+
+    /**
+     * @return the number of monsters killed so far, including protectors
+     */
+    public long getKills(){
+        return this.kills;
+    }
+
+    /**
+     * @return nanoseconds since the bot started playing
+     */
+    public long getElapsedNanos(){
+        return this.elapsedNanos;
+    }
+
+    @Override
+    public String toString(){
+        return status + ": " + roomsCompleted + "/" + totalRooms + " rooms completed, " + kills + " kills, " + passes + " passes, " + elapsedNanos / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,322 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls one run of GameBot#play(PlaySession): how long it may take, how many steps it may make, and whether it has been cancelled.
+ * A step is one monster considered during a pass through the rooms. The budget and cancellation are checked before every step,
+ * so a run stops promptly and returns the progress it had made.
+ *
+ * The session is also a Flow.Publisher of PlayProgress. Subscribers get a snapshot after every room completion and every pass,
+ * and a final snapshot when the run stops, after which the publisher completes. Progress is only built when someone has subscribed.
+ * The run never waits for a subscriber that has fallen behind: a snapshot that doesn't fit in its buffer is dropped for it, since
+ * a later one supersedes it. That includes the final snapshot, so a run whose budget is spent stops at once however its
+ * subscribers are doing; a subscriber too far behind to get the final snapshot can read #getFinalProgress. A subscriber that
+ * subscribes after the run stopped gets the final snapshot and then completes.
+ *
+ * Usage: PlaySession [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * plays generated scenarios with a subscriber that takes every snapshot and one that takes them slowly, one at a time,
+ * subscribes another after each run, and checks that all three end with the snapshot the run returned and then complete.
+ * It then plays a large scenario with a subscriber that asks for nothing, and checks that the run still returns.
+ */
+public class PlaySession implements Flow.Publisher<PlayProgress> {
+    private long timeBudgetNanos;
+    private long stepBudget;
+    private volatile boolean cancelled;
+    private SubmissionPublisher<PlayProgress> publisher;
+    private long startNanos;
+    private long deadlineNanos;
+    private long steps;
+    private boolean started;
+    /**the final snapshot, once the run has stopped*/
+    private PlayProgress finalProgress;
+
+    /**
+     * a session with no time or step budget
+     */
+    public PlaySession(){
+        this(null,Long.MAX_VALUE);
+    }
+
+    /**
+     * @param timeBudget how long the run may take, from when it starts, or null for no limit
+     * @param stepBudget the most steps the run may make
+     * @throws IllegalArgumentException if the time budget is negative or the step budget is < 0
+     */
+    public PlaySession(Duration timeBudget, long stepBudget){
+        if((timeBudget != null && timeBudget.isNegative()) || stepBudget < 0){
+            throw new IllegalArgumentException();
+        }
+        this.timeBudgetNanos = timeBudget == null ? Long.MAX_VALUE : timeBudget.toNanos();
+        this.stepBudget = stepBudget;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","200"));
+        int scenarios = 0;
+        int failures = 0;
+        long snapshots = 0;
+        for(int i = 0; i < count; i++){
+            List<List<String>> messages;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                messages = ScenarioCodec.readMessages(reader);
+            }
+            for(List<String> lines : messages){
+                ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+                GameBot bot = new GameBot(scenario.getRooms(),scenario.getPlayers());
+                PlaySession session = new PlaySession();
+                Recorder eager = new Recorder(Long.MAX_VALUE,0);
+                Recorder slow = new Recorder(1,1);
+                session.subscribe(eager);
+                session.subscribe(slow);
+                PlayProgress progress = bot.play(session);
+                Recorder late = new Recorder(Long.MAX_VALUE,0);
+                session.subscribe(late);
+                String failure = null;
+                for(Recorder recorder : new Recorder[]{eager,slow,late}){
+                    String problem = recorder.check(progress);
+                    if(failure == null && problem != null){
+                        failure = (recorder == eager ? "eager" : recorder == slow ? "slow" : "late") + " subscriber " + problem;
+                    }
+                }
+                if(failure == null && late.received.size() != 1){
+                    failure = "late subscriber got " + late.received.size() + " snapshots";
+                }
+                snapshots += eager.received.size();
+                scenarios++;
+                if(failure != null){
+                    failures++;
+                    System.out.println("scenario " + (scenarios - 1) + ": " + failure);
+                }
+            }
+        }
+        String stalled = checkStalledSubscriber(Long.parseLong(options.getOrDefault("seed","42")));
+        if(stalled != null){
+            failures++;
+            System.out.println(stalled);
+        }
+        System.out.println(failures + " failures over " + scenarios + " scenarios, " + snapshots + " snapshots published");
+        if(failures > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return what went wrong playing a game with more snapshots than fit in a subscriber's buffer, with a subscriber that
+     * asks for none of them, or null if the run returned with its final snapshot available
+     */
+    private static String checkStalledSubscriber(long seed) throws IOException, InterruptedException {
+        List<String> lines;
+        try(BufferedReader reader = new BufferedReader(new StringReader(new ScenarioGenerator(seed,2 * Flow.defaultBufferSize(),4,3).next()))){
+            lines = ScenarioCodec.readMessages(reader).get(0);
+        }
+        ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+        GameBot bot = new GameBot(scenario.getRooms(),scenario.getPlayers());
+        PlaySession session = new PlaySession();
+        session.subscribe(new Recorder(0,0));
+        PlayProgress[] progress = new PlayProgress[1];
+        Thread player = new Thread(() -> progress[0] = bot.play(session),"player");
+        player.setDaemon(true);
+        player.start();
+        player.join(10000);
+        if(player.isAlive()){
+            return "a subscriber that asked for nothing held up the end of the run";
+        }
+        if(session.getFinalProgress() != progress[0]){
+            return "the final snapshot isn't available after the run";
+        }
+        if(progress[0].getRoomsCompleted() + progress[0].getPasses() <= Flow.defaultBufferSize()){
+            return "the large scenario published too few snapshots to fill a buffer";
+        }
+        return null;
+    }
+
+    /**
+     * a subscriber for #main that keeps what it receives, asking for a given number of snapshots at a time
+     */
+    private static class Recorder implements Flow.Subscriber<PlayProgress> {
+        private final long batch;
+        private final long delayMillis;
+        private final List<PlayProgress> received = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        private Recorder(long batch, long delayMillis){
+            this.batch = batch;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription){
+            this.subscription = subscription;
+            if(batch > 0){
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(PlayProgress progress){
+            received.add(progress);
+            if(batch != Long.MAX_VALUE){
+                try{
+                    Thread.sleep(delayMillis);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable){
+            this.error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete(){
+            completed.countDown();
+        }
+
+        /**
+         * @return what is wrong with what this subscriber received, once it completes, or null if nothing is
+         */
+        private String check(PlayProgress progress) throws InterruptedException {
+            if(!completed.await(10,TimeUnit.SECONDS)){
+                return "never completed";
+            }
+            if(error != null){
+                return "failed with " + error;
+            }
+            if(received.isEmpty() || received.get(received.size() - 1) != progress){
+                return "didn't end with the final snapshot";
+            }
+            return null;
+        }
+    }
+
+    /**
+     * ask the run to stop before its next step. May be called from any thread.
+     */
+    public void cancel(){
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return this.cancelled;
+    }
+
+    /**
+     * @return the number of steps the run has made so far
+     */
+    public long getSteps(){
+        return this.steps;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PlayProgress> subscriber){
+        synchronized(this){
+            if(finalProgress == null){
+                if(publisher == null){
+                    publisher = new SubmissionPublisher<>();
+                }
+                publisher.subscribe(subscriber);
+                return;
+            }
+        }
+        //the run has stopped: a publisher of its own delivers the final snapshot to the late subscriber
+        SubmissionPublisher<PlayProgress> late = new SubmissionPublisher<>();
+        late.subscribe(subscriber);
+        late.submit(finalProgress);
+        late.close();
+    }
+
+    /**
+     * mark the start of the run, from which the time budget is counted
+     * @throws IllegalStateException if the session was already used for a run
+     */
+    protected void begin(){
+        if(started){
+            throw new IllegalStateException();
+        }
+        started = true;
+        startNanos = System.nanoTime();
+        deadlineNanos = timeBudgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE : startNanos + timeBudgetNanos;
+    }
+
+    /**
+     * account for one more step
+     * @return why the run must stop before making the step, or null if it may go ahead
+     */
+    protected PlayProgress.Status takeStep(){
+        if(cancelled){
+            return PlayProgress.Status.CANCELLED;
+        }
+        if(steps >= stepBudget || (deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0)){
+            return PlayProgress.Status.OUT_OF_BUDGET;
+        }
+        steps++;
+        return null;
+    }
+
+    protected long getElapsedNanos(){
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return does anyone want progress snapshots?
+     */
+    protected synchronized boolean hasSubscribers(){
+        return publisher != null && publisher.hasSubscribers();
+    }
+
+    /**
+     * publish a snapshot to every subscriber with room for it in its buffer, without waiting for the others
+     * @param progress
+     */
+    protected synchronized void publish(PlayProgress progress){
+        if(publisher != null){
+            publisher.offer(progress,(subscriber,dropped) -> false);
+        }
+    }
+
+    /**
+     * @return the progress the run stopped with, or null if it hasn't stopped
+     */
+    public synchronized PlayProgress getFinalProgress(){
+        return this.finalProgress;
+    }
+
+    /**
+     * publish the final snapshot of the run to every subscriber with room for it, and complete the publisher, without waiting
+     * for any of them. Later subscribers get the final snapshot on their own.
+     * @param progress
+     */
+    protected void finish(PlayProgress progress){
+        SubmissionPublisher<PlayProgress> publisher;
+        synchronized(this){
+            finalProgress = progress;
+            publisher = this.publisher;
+        }
+        if(publisher != null){
+            publisher.offer(progress,(subscriber,dropped) -> false);
+            publisher.close();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package edu.yu.cs.intro.doomGame;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a player in the game.
@@ -8,24 +9,31 @@ import java.util.*;
  */
 
 public class Player implements Comparable<Player> {
+    private static final AtomicLong nextId = new AtomicLong();
 
     /**
      * @param name the player's name
      * @param health the player's starting health level
      */
+    private final long id;
     private String name;
     private int health;
-    private EnumMap<Weapon,Integer> weaponToAmmo;
-    private Set<Weapon> weapons;
-    private Map<Weapon,Integer> weaponDoesntHaveToAmmo;
+    /**ammunition held for weapons the player doesn't have, by TypeRegistry weapon id*/
+    private Map<Integer,Integer> weaponDoesntHaveToAmmo;
+    private PlayerWeaponIndex weaponIndex;
+    private int weaponIndexPosition;
+    /**the weapons the player has, with the ammunition for each, and its health*/
+    private CapabilityVector capabilities;
+    private Trail trail;
 
 
     public Player(String name, int health) {
+        this.id = nextId.getAndIncrement();
         this.name = name;
         this.health = health;
-        this.weaponToAmmo = new EnumMap<>(Weapon.class);
-        this.weapons = new HashSet<>();
         this.weaponDoesntHaveToAmmo = new HashMap<>();
+        this.capabilities = new CapabilityVector();
+        this.capabilities.setHealth(health);
         this.addWeapon(Weapon.FIST);
         this.changeAmmunitionRoundsForWeapon(Weapon.FIST,10000000);
     }
@@ -40,7 +48,15 @@ public class Player implements Comparable<Player> {
      * @return
      */
     public boolean hasWeapon(Weapon w){
-        return weapons.contains(w);
+        return w != null && hasWeapon(w.ordinal());
+    }
+
+    /**
+     * @param weapon the weapon's TypeRegistry id
+     * @return does this player have the given weapon?
+     */
+    public boolean hasWeapon(int weapon){
+        return capabilities.hasWeapon(weapon);
     }
 
     /**
@@ -49,10 +65,18 @@ public class Player implements Comparable<Player> {
      * @return
      */
     public int getAmmunitionRoundsForWeapon(Weapon w){
-            if(weapons.contains(w)){
-                return weaponToAmmo.get(w);
+        return getAmmunitionRoundsForWeapon(w.ordinal());
+    }
+
+    /**
+     * @param weapon the weapon's TypeRegistry id
+     * @return how much ammunition does this player have for the given weapon?
+     */
+    public int getAmmunitionRoundsForWeapon(int weapon){
+            if(capabilities.hasWeapon(weapon)){
+                return capabilities.getAmmunition(weapon);
             }
-            return weaponDoesntHaveToAmmo.get(w);
+            return weaponDoesntHaveToAmmo.get(weapon);
     }
 
     /**
@@ -60,11 +84,23 @@ public class Player implements Comparable<Player> {
      * @param weapon weapon whose ammunition count is to be changed
      * @param change amount to change ammunition count for that weapon by
      * @return the new total amount of ammunition the player has for the weapon.
+     * @throws IllegalArgumentException if the player doesn't have the weapon
      */
     public int changeAmmunitionRoundsForWeapon(Weapon weapon, int change){
-        int totalAmount = weaponToAmmo.get(weapon) + change;
-        weaponToAmmo.put(weapon,totalAmount);
-        return weaponToAmmo.get(weapon);
+        return changeAmmunitionRoundsForWeapon(weapon.ordinal(),change);
+    }
+
+    /**
+     * the same as #changeAmmunitionRoundsForWeapon(Weapon, int), with the weapon given by its TypeRegistry id
+     */
+    public int changeAmmunitionRoundsForWeapon(int weapon, int change){
+        if(!hasWeapon(weapon)){
+            throw new IllegalArgumentException();
+        }
+        int oldAmount = capabilities.getAmmunition(weapon);
+        this.setAmmunition(weapon,oldAmount + change);
+        this.record(() -> this.setAmmunition(weapon,oldAmount));
+        return capabilities.getAmmunition(weapon);
     }
 
     /**
@@ -76,19 +112,37 @@ public class Player implements Comparable<Player> {
      * @throws IllegalStateException if the player is dead
      */
     protected int addAmmunition(Weapon weapon, int rounds){
-        if(!weapons.contains(weapon)){
-            weaponDoesntHaveToAmmo.put(weapon,rounds);
+        if(weapon == null){
+            throw new IllegalArgumentException();
+        }
+        return addAmmunition(weapon.ordinal(),rounds);
+    }
+
+    /**
+     * the same as #addAmmunition(Weapon, int), with the weapon given by its TypeRegistry id
+     */
+    protected int addAmmunition(int weapon, int rounds){
+        if(!capabilities.hasWeapon(weapon)){
+            Integer oldRounds = weaponDoesntHaveToAmmo.put(weapon,rounds);
+            this.record(() -> {
+                if(oldRounds == null){
+                    weaponDoesntHaveToAmmo.remove(weapon);
+                }else{
+                    weaponDoesntHaveToAmmo.put(weapon,oldRounds);
+                }
+            });
             return weaponDoesntHaveToAmmo.get(weapon);
         }
-        if(weapon == null || weaponToAmmo.get(weapon) < 0){
+        if(capabilities.getAmmunition(weapon) < 0){
             throw new IllegalArgumentException();
         }
         if(this.health < 0){
             throw new IllegalStateException();
         }
-        int totalAmount = weaponToAmmo.get(weapon) + rounds;
-        weaponToAmmo.put(weapon,totalAmount);
-        return weaponToAmmo.get(weapon);
+        int oldAmount = capabilities.getAmmunition(weapon);
+        this.setAmmunition(weapon,oldAmount + rounds);
+        this.record(() -> this.setAmmunition(weapon,oldAmount));
+        return capabilities.getAmmunition(weapon);
     }
 
     /**
@@ -103,12 +157,27 @@ public class Player implements Comparable<Player> {
         if(weapon == null){
             throw new IllegalArgumentException();
         }
+        return addWeapon(weapon.ordinal());
+    }
+
+    /**
+     * the same as #addWeapon(Weapon), with the weapon given by its TypeRegistry id
+     * @throws IllegalArgumentException if the weapon isn't registered
+     */
+    protected boolean addWeapon(int weapon){
+        if(weapon < 0 || weapon >= TypeRegistry.getWeaponCount()){
+            throw new IllegalArgumentException();
+        }
         if(this.health < 0){
             throw new IllegalStateException();
         }
         if(!hasWeapon(weapon)){
-            weaponToAmmo.put(weapon,5);
-            return weapons.add(weapon);
+            this.setAmmunition(weapon,5);
+            this.record(() -> {
+                capabilities.removeWeapon(weapon);
+                this.weaponStateChanged(weapon);
+            });
+            return true;
         }
         return false;
     }
@@ -123,7 +192,7 @@ public class Player implements Comparable<Player> {
         if(this.health < 0){
             throw new IllegalStateException();
         }
-        return this.health += amount;
+        return this.updateHealth(this.health + amount);
     }
 
     /**
@@ -131,7 +200,117 @@ public class Player implements Comparable<Player> {
      * @param amount
      */
     protected void setHealth(int amount){
+        this.updateHealth(amount);
+    }
+
+    private int updateHealth(int amount){
+        boolean wasDead = this.isDead();
+        int oldHealth = this.health;
         this.health = amount;
+        this.record(() -> this.updateHealth(oldHealth));
+        capabilities.setHealth(amount);
+        if(weaponIndex != null && wasDead != this.isDead()){
+            weaponIndex.livenessChanged(this);
+        }
+        return this.health;
+    }
+
+    /**
+     * keep this player's weapon index entry in line with its weapons and ammunition
+     * @param weapon the weapon that was added or removed, or whose ammunition changed
+     */
+    private void weaponStateChanged(int weapon){
+        if(weaponIndex != null){
+            weaponIndex.weaponChanged(this,weapon);
+        }
+    }
+
+    private void setAmmunition(int weapon, int amount){
+        capabilities.setWeapon(weapon,amount);
+        this.weaponStateChanged(weapon);
+    }
+
+    /**
+     * attach the trail this player records undo entries for its changes on, or detach it with null
+     * @param trail
+     */
+    protected void setTrail(Trail trail){
+        this.trail = trail;
+    }
+
+    private void record(Runnable undo){
+        if(trail != null){
+            trail.record(undo);
+        }
+    }
+
+    /**
+     * @return the ammunition this player holds for weapons it doesn't have, by TypeRegistry weapon id
+     * @see #addAmmunition(Weapon, int)
+     */
+    protected Map<Integer,Integer> getAmmunitionWithoutWeapon(){
+        return Collections.unmodifiableMap(this.weaponDoesntHaveToAmmo);
+    }
+
+    /**
+     * Replace this player's health, weapons and ammunition with the given state, e.g. one copied from this player in another process.
+     * This is not a move in the game, so it is not recorded on any trail.
+     * @param health
+     * @param weaponAmmo the weapons the player has, by TypeRegistry id, with the ammunition for each
+     * @param ammoWithoutWeapon ammunition the player holds for weapons it doesn't have, by TypeRegistry id
+     */
+    protected void restore(int health, Map<Integer,Integer> weaponAmmo, Map<Integer,Integer> ammoWithoutWeapon){
+        this.health = health;
+        this.capabilities.setHealth(health);
+        this.weaponDoesntHaveToAmmo.clear();
+        this.weaponDoesntHaveToAmmo.putAll(ammoWithoutWeapon);
+        for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+            if(weaponAmmo.containsKey(weapon)){
+                capabilities.setWeapon(weapon,weaponAmmo.get(weapon));
+            }else{
+                capabilities.removeWeapon(weapon);
+            }
+            this.weaponStateChanged(weapon);
+        }
+    }
+
+    /**
+     * @return the weapons, ammunition and health this player currently has, as a vector that can be checked against a room's kill requirements
+     * @see Room#getKillRequirement(Monster)
+     */
+    protected CapabilityVector getCapabilities(){
+        return this.capabilities;
+    }
+
+    /**
+     * @return the index this player keeps up to date with its weapons, ammunition and liveness, or null if it isn't in one
+     */
+    protected PlayerWeaponIndex getWeaponIndex(){
+        return this.weaponIndex;
+    }
+
+    /**
+     * @return this player's position in its weapon index, which keeps its per-player state in arrays by position
+     */
+    protected int getWeaponIndexPosition(){
+        return this.weaponIndexPosition;
+    }
+
+    /**
+     * set the index this player must notify whenever its weapons, ammunition or liveness change
+     * @param weaponIndex
+     * @param position the player's position in the index
+     */
+    protected void setWeaponIndex(PlayerWeaponIndex weaponIndex, int position){
+        this.weaponIndex = weaponIndex;
+        this.weaponIndexPosition = position;
+    }
+
+    /**
+     * @return this player's id: players are numbered 0, 1, 2... in the order they are created
+     */
+    public long getId(){
+        return this.id;
     }
 
     /**
@@ -155,8 +334,9 @@ public class Player implements Comparable<Player> {
      * Does one have a greater weapon?
      * If they have the same greatest weapon, who has more ammunition for it?
      * If they are the same on weapon and ammunition, who has more health?
-     * If they are the same on greatest weapon, ammunition for it, and health, they are equal.
-     * Recall that all enums have a built-in implementation of Comparable, and they compare based on ordinal()
+     * If they are the same on greatest weapon, ammunition for it, and health, the one created first is less.
+     * Only the same player is equal, so distinct players never collide in a sorted set.
+     * Weapons compare by TypeRegistry id, which for the built-in ones is their ordinal()
      *
      * @param other
      * @return
@@ -167,17 +347,14 @@ public class Player implements Comparable<Player> {
         int playerTwoWeapon = 0;
         int ammoForPlayerOne = 0;
         int ammoForPlayerTwo = 0;
-        for(Weapon weapon : this.weapons){
+        for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
 
-            if(weapon.ordinal() > playerOneWeapon){
-                playerOneWeapon = weapon.ordinal();
+            if(weapon > playerOneWeapon && this.hasWeapon(weapon)){
+                playerOneWeapon = weapon;
                 ammoForPlayerOne = this.getAmmunitionRoundsForWeapon(weapon);
             }
-        }
-        for(Weapon weapon : other.weapons){
-
-            if(weapon.ordinal() > playerTwoWeapon){
-                playerTwoWeapon = weapon.ordinal();
+            if(weapon > playerTwoWeapon && other.hasWeapon(weapon)){
+                playerTwoWeapon = weapon;
                 ammoForPlayerTwo = other.getAmmunitionRoundsForWeapon(weapon);
             }
         }
@@ -199,7 +376,7 @@ public class Player implements Comparable<Player> {
         if(playerOneWeapon == playerTwoWeapon && ammoForPlayerOne == ammoForPlayerTwo && this.getHealth() < other.getHealth()){
             return -1;
         }
-        return 0;
+        return Long.compare(this.id,other.id);
 
 
 
@@ -217,10 +394,10 @@ public class Player implements Comparable<Player> {
     }
 
     /**
-     * @return the hash code of the player's name
+     * @return the player's id, which no other player has
      */
     @Override
     public int hashCode() {
-        return this.name.hashCode();
+        return Long.hashCode(this.id);
     }
 }
@@ -0,0 +1,31 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Decides which player GameBot asks first to kill a monster. The first player in the returned order that GameBot#canKill
+ * allows gets the kill, and with it the room's rewards from GameBot#reapCompletionRewards.
+ */
+public interface PlayerAssignment {
+    /**
+     * Ask players in the order of the game's set of players, i.e. the first capable player gets every kill
+     */
+    PlayerAssignment IN_PLAYERS_ORDER = (room, monster, capable) -> capable;
+
+    /**
+     * called at the start of every pass through the rooms, before any #order call of that pass
+     * @param rooms all the rooms in the game
+     */
+    default void beginPass(SortedSet<Room> rooms){
+    }
+
+    /**
+     * @param room the room the monster is in
+     * @param monster the monster to be killed
+     * @param capable the live players that hold the weapon and ammunition needed for the monster, in the order of the game's set of players.
+     * GameBot reuses this list for the next monster, so copy it to keep it past this call.
+     * @return the players to ask, in the order to ask them; may be the given list itself, reordered, or a new list
+     */
+    List<Player> order(Room room, Monster monster, List<Player> capable);
+}
@@ -0,0 +1,191 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * A live index from each weapon to the live players that hold it, ordered by how much ammunition they have for it.
+ * Players keep the index up to date themselves whenever they gain a weapon, their ammunition changes, or they die
+ * or come back to life, so a lookup of "who can fire N rounds of weapon W" is a range query on a TreeMap
+ * rather than a scan over every player. When every holder of the weapon has enough ammunition, which is the usual case,
+ * the lookup copies the set of holders without visiting the TreeMap's buckets at all, and it fills buffers owned by the caller.
+ *
+ * A player is kept up to date by one index at a time. Handing players to another index, e.g. that of another GameBot,
+ * must be explicit: see GameBot#releasePlayers.
+ */
+public class PlayerWeaponIndex {
+    private static final int NOT_INDEXED = Integer.MIN_VALUE;
+
+    /**the players that hold each weapon, by TypeRegistry weapon id, keyed by their ammunition for it*/
+    private List<TreeMap<Integer,BitSet>> weaponToPlayersByAmmo;
+    /**the players that hold each weapon, by TypeRegistry weapon id, whatever their ammunition; the union of its TreeMap's buckets*/
+    private List<BitSet> weaponToHolders;
+    /**the players, by position*/
+    private List<Player> players;
+    /**the ammunition each player is indexed under for each weapon, by position and weapon id; NOT_INDEXED if it isn't indexed for the weapon*/
+    private int[][] indexedAmmo;
+
+    public PlayerWeaponIndex(){
+        this.weaponToPlayersByAmmo = new ArrayList<>();
+        this.weaponToHolders = new ArrayList<>();
+        this.players = new ArrayList<>();
+        this.indexedAmmo = new int[8][];
+    }
+
+    /**
+     * add the given player to the index. Players are returned from queries in the order in which they were added.
+     * @param player
+     * @throws IllegalArgumentException if the player is null or is already in an index; a player in another index must be
+     * removed from it first, with #removePlayer
+     */
+    protected void addPlayer(Player player){
+        if(player == null){
+            throw new IllegalArgumentException();
+        }
+        if(player.getWeaponIndex() != null){
+            throw new IllegalArgumentException(player.getName() + " is already in the weapon index of another GameBot; release it from that bot first");
+        }
+        int position = players.size();
+        players.add(player);
+        if(position == indexedAmmo.length){
+            indexedAmmo = Arrays.copyOf(indexedAmmo,position * 2);
+        }
+        indexedAmmo[position] = new int[0];
+        player.setWeaponIndex(this,position);
+        livenessChanged(player);
+    }
+
+    /**
+     * take the given player out of the index, so queries no longer return it and it no longer keeps the index up to date.
+     * Its position isn't reused.
+     * @param player a player in this index
+     * @throws IllegalArgumentException if the player isn't in this index
+     */
+    protected void removePlayer(Player player){
+        if(player.getWeaponIndex() != this){
+            throw new IllegalArgumentException(player.getName() + " is not in this index");
+        }
+        int position = player.getWeaponIndexPosition();
+        int[] ammo = indexedAmmo[position];
+        for(int weapon = 0; weapon < ammo.length; weapon++){
+            if(ammo[weapon] != NOT_INDEXED){
+                TreeMap<Integer,BitSet> byAmmo = playersByAmmo(weapon);
+                BitSet bucket = byAmmo.get(ammo[weapon]);
+                bucket.clear(position);
+                if(bucket.isEmpty()){
+                    byAmmo.remove(ammo[weapon]);
+                }
+                holders(weapon).clear(position);
+            }
+        }
+        indexedAmmo[position] = new int[0];
+        players.set(position,null);
+        player.setWeaponIndex(null,0);
+    }
+
+    /**
+     * re-index the given player's entry for the given weapon, after the player gained the weapon or the ammunition for it changed
+     * @param player
+     * @param weapon
+     */
+    protected void weaponChanged(Player player, Weapon weapon){
+        weaponChanged(player,weapon.ordinal());
+    }
+
+    /**
+     * the same as #weaponChanged(Player, Weapon), with the weapon given by its TypeRegistry id
+     */
+    protected void weaponChanged(Player player, int weapon){
+        int position = player.getWeaponIndexPosition();
+        if(weapon >= indexedAmmo[position].length){
+            //weapons can be registered after the player was added
+            int known = indexedAmmo[position].length;
+            indexedAmmo[position] = Arrays.copyOf(indexedAmmo[position],TypeRegistry.getWeaponCount());
+            Arrays.fill(indexedAmmo[position],known,indexedAmmo[position].length,NOT_INDEXED);
+        }
+        int oldAmmo = indexedAmmo[position][weapon];
+        TreeMap<Integer,BitSet> byAmmo = playersByAmmo(weapon);
+        if(oldAmmo != NOT_INDEXED){
+            BitSet bucket = byAmmo.get(oldAmmo);
+            bucket.clear(position);
+            if(bucket.isEmpty()){
+                byAmmo.remove(oldAmmo);
+            }
+            indexedAmmo[position][weapon] = NOT_INDEXED;
+            holders(weapon).clear(position);
+        }
+        if(!player.isDead() && player.hasWeapon(weapon)){
+            int ammo = player.getAmmunitionRoundsForWeapon(weapon);
+            indexedAmmo[position][weapon] = ammo;
+            byAmmo.computeIfAbsent(ammo,k -> new BitSet()).set(position);
+            holders(weapon).set(position);
+        }
+    }
+
+    /**
+     * re-index all of the given player's weapons, after the player died or came back to life
+     * @param player
+     */
+    protected void livenessChanged(Player player){
+        for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+            weaponChanged(player,weapon);
+        }
+    }
+
+    private TreeMap<Integer,BitSet> playersByAmmo(int weapon){
+        while(weaponToPlayersByAmmo.size() <= weapon){
+            weaponToPlayersByAmmo.add(new TreeMap<>());
+        }
+        return weaponToPlayersByAmmo.get(weapon);
+    }
+
+    private BitSet holders(int weapon){
+        while(weaponToHolders.size() <= weapon){
+            weaponToHolders.add(new BitSet());
+        }
+        return weaponToHolders.get(weapon);
+    }
+
+    /**
+     * @param weapon
+     * @param ammunition
+     * @return the live players that have the given weapon and at least the given amount of ammunition for it, in the order they were added to the index
+     */
+    protected List<Player> getLivePlayersWithWeaponAndAmmunition(Weapon weapon, int ammunition){
+        return getLivePlayersWithWeaponAndAmmunition(weapon.ordinal(),ammunition);
+    }
+
+    /**
+     * the same as #getLivePlayersWithWeaponAndAmmunition(Weapon, int), with the weapon given by its TypeRegistry id
+     */
+    protected List<Player> getLivePlayersWithWeaponAndAmmunition(int weapon, int ammunition){
+        List<Player> inOrder = new ArrayList<>();
+        getLivePlayersWithWeaponAndAmmunition(weapon,ammunition,new BitSet(players.size()),inOrder);
+        return inOrder;
+    }
+
+    /**
+     * the same as #getLivePlayersWithWeaponAndAmmunition(int, int), filling buffers the caller owns and reuses, so a lookup allocates nothing
+     * @param capable cleared, then set to the positions of the players returned
+     * @param into cleared, then filled with the players, in the order they were added to the index
+     */
+    protected void getLivePlayersWithWeaponAndAmmunition(int weapon, int ammunition, BitSet capable, List<Player> into){
+        capable.clear();
+        into.clear();
+        TreeMap<Integer,BitSet> byAmmo = playersByAmmo(weapon);
+        if(byAmmo.isEmpty()){
+            return;
+        }
+        if(byAmmo.firstKey() >= ammunition){
+            //every holder has enough, so no bucket needs visiting
+            capable.or(holders(weapon));
+        }else{
+            //walking the keys, rather than a tailMap view, allocates no view or iterator
+            for(Integer ammo = byAmmo.ceilingKey(ammunition); ammo != null; ammo = byAmmo.higherKey(ammo)){
+                capable.or(byAmmo.get(ammo));
+            }
+        }
+        for(int position = capable.nextSetBit(0); position >= 0; position = capable.nextSetBit(position + 1)){
+            into.add(players.get(position));
+        }
+    }
+}
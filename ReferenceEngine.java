@@ -0,0 +1,18 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.SortedSet;
+
+/**
+ * The reference GameEngine: plays the game exactly as GameBot#play does
+ */
+public class ReferenceEngine implements GameEngine {
+    @Override
+    public String getName(){
+        return "GameBot";
+    }
+
+    @Override
+    public boolean play(SortedSet<Room> rooms, SortedSet<Player> players){
+        return new GameBot(rooms,players).play();
+    }
+}
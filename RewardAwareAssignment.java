@@ -0,0 +1,79 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * Gives each kill to the capable player who gets the most out of the room's rewards, rather than to the first capable player.
+ * GameBot grants a room's rewards to whoever kills a monster in it, so who gets them decides which player can act next pass.
+ *
+ * A reward is worth more the more the game still needs it. At the start of every pass, the ammunition still needed per weapon
+ * is totalled over every live monster. A weapon the player lacks is worth a lot if any live monster needs it; ammunition is worth
+ * as many rounds as close the player's shortfall for a weapon it holds or is about to be given; health won counts as is.
+ * Against that is weighed the health the room costs to enter, as a share of the player's health, so a player near death isn't
+ * sent in for a small prize. Ties keep the order of the game's set of players.
+ */
+public class RewardAwareAssignment implements PlayerAssignment {
+    /**how much a missing weapon that some live monster needs is worth, on top of the ammunition still needed for it*/
+    private static final double MISSING_WEAPON_VALUE = 1000;
+    /**how much entering a room that costs all of a player's health is worth, as a penalty*/
+    private static final double FULL_HEALTH_COST = 200;
+
+    private int[] ammoStillNeeded;
+
+    public RewardAwareAssignment(){
+        this.ammoStillNeeded = new int[Weapon.values().length];
+    }
+
+    @Override
+    public void beginPass(SortedSet<Room> rooms){
+        Arrays.fill(ammoStillNeeded,0);
+        for(Room room : rooms){
+            CapabilityVector needed = room.getCompletionRequirement();
+            for(Weapon weapon : Weapon.values()){
+                ammoStillNeeded[weapon.ordinal()] += needed.getAmmunition(weapon);
+            }
+        }
+    }
+
+    @Override
+    public List<Player> order(Room room, Monster monster, List<Player> capable){
+        if(capable.size() < 2){
+            return capable;
+        }
+        Map<Player,Double> values = new HashMap<>();
+        for(Player player : capable){
+            values.put(player,valueOfRewards(player,room));
+        }
+        List<Player> ordered = new ArrayList<>(capable);
+        //List.sort is stable, so equal values keep the players order
+        ordered.sort((a, b) -> Double.compare(values.get(b),values.get(a)));
+        return ordered;
+    }
+
+    /**
+     * @param player
+     * @param room
+     * @return the value of the room's rewards to the player, less the cost of entering the room
+     */
+    protected double valueOfRewards(Player player, Room room){
+        double value = 0;
+        Set<Weapon> weaponsWon = room.getWeaponsWonUponCompletion();
+        for(Weapon weapon : weaponsWon){
+            if(!player.hasWeapon(weapon) && ammoStillNeeded[weapon.ordinal()] > 0){
+                value += MISSING_WEAPON_VALUE + ammoStillNeeded[weapon.ordinal()];
+            }
+        }
+        for(Map.Entry<Weapon,Integer> ammo : room.getAmmoWonUponCompletion().entrySet()){
+            Weapon weapon = ammo.getKey();
+            if(player.hasWeapon(weapon)){
+                int shortfall = ammoStillNeeded[weapon.ordinal()] - player.getAmmunitionRoundsForWeapon(weapon);
+                value += Math.min(ammo.getValue(),Math.max(0,shortfall));
+            }else if(weaponsWon.contains(weapon)){
+                value += Math.min(ammo.getValue(),ammoStillNeeded[weapon.ordinal()]);
+            }
+        }
+        value += room.getHealthWonUponCompletion();
+        value -= FULL_HEALTH_COST * room.getPlayerHealthLostPerEncounter() / Math.max(1,player.getHealth());
+        return value;
+    }
+}
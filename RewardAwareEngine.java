@@ -0,0 +1,19 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.SortedSet;
+
+/**
+ * A GameEngine that plays like GameBot, but gives each kill to the player who gets the most out of the room's rewards
+ * @see RewardAwareAssignment
+ */
+public class RewardAwareEngine implements GameEngine {
+    @Override
+    public String getName(){
+        return "RewardAware";
+    }
+
+    @Override
+    public boolean play(SortedSet<Room> rooms, SortedSet<Player> players){
+        return new GameBot(rooms,players,new RewardAwareAssignment()).play();
+    }
+}
@@ -1,20 +1,35 @@
 package edu.yu.cs.intro.doomGame;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A Room in the game, which contains both monsters as well as rewards for the player that completes the room,
  * which is defined as the player who kills the last living monster in the room
  */
 public class Room implements Comparable<Room>{
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final long id;
     private SortedSet<Monster> monsters;
-    private SortedSet<Monster> deadMonsters;
+    /**the dead monsters, by #indexOf*/
+    private BitSet dead;
     private SortedSet<Monster> aliveMonsters;
     private Set<Weapon> weaponsWonUponCompletion;
     private Map<Weapon,Integer> ammoWonUponCompletion;
     private int healthWonUponCompletion;
     private String name;
     private int dangerLevel;
+    private int playerHealthLostPerEncounter;
+    private int[] liveCountByType;
+    private int[][] liveCountByTypeAndProtector;
+    /**bumped whenever the live counts change, which makes every cached kill requirement stale*/
+    private int liveCountsVersion;
+    /**the kill requirement of a live monster, at type * (types + 1) + protector id + 1; null until a room is first screened*/
+    private CapabilityVector[] killRequirements;
+    /**the #liveCountsVersion each of #killRequirements was built at*/
+    private int[] killRequirementVersions;
+    private Trail trail;
 
 
 
@@ -26,12 +41,29 @@ public class Room implements Comparable<Room>{
      * @param ammoWonUponCompletion ammunition a player gains when killing the last monster in this room
      * @param healthWonUponCompletion health a player gains when killing the last monster in this room
      * @param name the room's name
+     * @throws IllegalArgumentException if any of the monsters is already in another room
      */
     public Room(SortedSet<Monster> monsters, Set<Weapon> weaponsWonUponCompletion, Map<Weapon,Integer> ammoWonUponCompletion, int healthWonUponCompletion, String name){
+        for(Monster monster : monsters){
+            if(monster.getRoom() != null){
+                throw new IllegalArgumentException("monster " + monster.getId() + " is already in room " + monster.getRoom().getName());
+            }
+        }
+        this.id = nextId.getAndIncrement();
         this.monsters = monsters;
-        this.deadMonsters = new TreeSet<>();
+        int roomIndex = 0;
+        for(Monster monster : monsters){
+            monster.setRoom(this,roomIndex++);
+        }
+        this.dead = new BitSet();
         this.aliveMonsters = new TreeSet<>();
         aliveMonsters.addAll(monsters);
+        int types = TypeRegistry.getMonsterTypeCount();
+        this.liveCountByType = new int[types];
+        this.liveCountByTypeAndProtector = new int[types][types + 1];
+        for(Monster monster : aliveMonsters){
+            this.updateLiveCounts(monster,1);
+        }
         this.weaponsWonUponCompletion = weaponsWonUponCompletion;
         this.ammoWonUponCompletion = ammoWonUponCompletion;
         this.healthWonUponCompletion = healthWonUponCompletion;
@@ -43,29 +75,80 @@ public class Room implements Comparable<Room>{
 
     /**
      * Mark the given monster as being dead.
-     * Reduce the danger level of this room by monster.getMonsterType().ordinal()+1
+     * Reduce the danger level of this room by the monster's type id+1
      * @param monster
+     * @throws IllegalArgumentException if the monster isn't in this room
      */
     protected void monsterKilled(Monster monster){
+        int index = indexOf(monster);
+        boolean wasAlive = aliveMonsters.remove(monster);
+        if(wasAlive){
+            this.updateLiveCounts(monster,-1);
+        }
+        boolean addedToDead = !dead.get(index);
+        dead.set(index);
+        this.dangerLevel -= monster.getTypeId()+1;
+        if(trail != null){
+            trail.record(() -> {
+                if(wasAlive){
+                    aliveMonsters.add(monster);
+                    this.updateLiveCounts(monster,1);
+                }
+                if(addedToDead){
+                    dead.clear(index);
+                }
+                this.dangerLevel += monster.getTypeId()+1;
+            });
+        }
 
-        aliveMonsters.remove(monster);
-        deadMonsters.add(monster);
-        this.dangerLevel -= monster.getMonsterType().ordinal()+1;
+    }
 
+    /**
+     * attach the trail this room and its monsters record undo entries on, or detach it with null
+     * @param trail
+     */
+    protected void setTrail(Trail trail){
+        this.trail = trail;
+        for(Monster monster : monsters){
+            monster.setTrail(trail);
+        }
     }
 
     /**
-     * The danger level of the room is defined as the sum of the ordinal+1 value of all living monsters, i.e. adding up (m.getMonsterType().ordinal() + 1) of all the living monsters
+     * The danger level of the room is defined as the sum of the ordinal+1 value of all living monsters, i.e. adding up (m.getMonsterType().ordinal() + 1) of all the living monsters.
+     * A type defined in the TypeRegistry counts its id+1.
      * @return the danger level of this room
      */
     public int getDangerLevel(){
-        int danger = 0;
-        for(Monster monster : aliveMonsters){
-            if(!monster.isDead()){
-                danger += monster.getMonsterType().ordinal() + 1;
-            }
+        return MonsterColumns.getDangerLevel(liveCountByType);
+    }
+
+    /**
+     * @return this room's id: rooms are numbered 0, 1, 2... in the order they are created
+     */
+    public long getId(){
+        return this.id;
+    }
+
+    /**
+     * @param monster a monster in this room
+     * @return the monster's bit in this room's bitsets of monsters: the room numbers its monsters 0, 1, 2... when it is created
+     * @throws IllegalArgumentException if the monster isn't in this room
+     */
+    protected int indexOf(Monster monster){
+        if(monster.getRoom() != this){
+            throw new IllegalArgumentException("monster " + monster.getId() + " is not in room " + name);
         }
-        return danger;
+        return monster.getRoomIndex();
+    }
+
+    /**
+     * @param monster a monster in this room
+     * @return true if the monster hasn't been marked dead by #monsterKilled
+     * @throws IllegalArgumentException if the monster isn't in this room
+     */
+    protected boolean isLive(Monster monster){
+        return !dead.get(indexOf(monster));
     }
 
     /**
@@ -76,7 +159,7 @@ public class Room implements Comparable<Room>{
         return this.name;
     }
     /**
-     * compares based on danger level
+     * compares based on danger level, and rooms of equal danger by id, so distinct rooms are never equal
      * @param other
      * @return
      */
@@ -87,7 +170,7 @@ public class Room implements Comparable<Room>{
         }else if (this.getDangerLevel() < other.getDangerLevel()){
             return -1;
         }else{
-            return 0;
+            return Long.compare(this.id,other.id);
         }
     }
 
@@ -155,17 +238,115 @@ public class Room implements Comparable<Room>{
      * @see MonsterType#playerHealthLostPerExposure
      */
     public int getPlayerHealthLostPerEncounter(){
-        int healthLost = 0;
-        for(Monster monster : getLiveMonsters()){
-            healthLost += monster.getMonsterType().playerHealthLostPerExposure;
+        return this.playerHealthLostPerEncounter;
+    }
+
+    /**
+     * add (or remove, if change is negative) the given monster to the per-type aggregates of the live monsters in this room
+     * @param monster
+     * @param change
+     */
+    private void updateLiveCounts(Monster monster, int change){
+        int type = monster.getTypeId();
+        liveCountByType[type] += change;
+        liveCountByTypeAndProtector[type][monster.getProtectorId() + 1] += change;
+        playerHealthLostPerEncounter += change * TypeRegistry.getPlayerHealthLostPerExposure(type);
+        liveCountsVersion++;
+    }
+
+    /**
+     * What must a player at least have to kill the given monster in this room, along with every live monster protecting it?
+     * The weapons and ammunition are exactly those used up by the kill chain. The health is a lower bound: each kill in the chain
+     * costs the exposure of every live monster not yet marked, which is at least the room's exposure less the chain's own exposure,
+     * and the first kill costs the full exposure of the room.
+     * Computed from per-type counts of the live monsters, so it costs the same however many monsters are in the room, and cached
+     * per type and protector until a monster dies or is brought back, so repeated checks of a room between kills allocate nothing.
+     * The cache is allocated when the room is first screened, so rooms that never are don't pay for it.
+     * @param monster a live monster in this room
+     * @return the requirement vector for killing the monster, which is shared and must not be changed
+     * @see GameBot#canKill(Player, Monster, Room)
+     */
+    protected CapabilityVector getKillRequirement(Monster monster){
+        int types = liveCountByType.length;
+        if(killRequirements == null){
+            killRequirements = new CapabilityVector[types * (types + 1)];
+            killRequirementVersions = new int[types * (types + 1)];
+        }
+        int slot = monster.getTypeId() * (types + 1) + monster.getProtectorId() + 1;
+        CapabilityVector requirement = killRequirements[slot];
+        if(requirement == null || killRequirementVersions[slot] != liveCountsVersion){
+            requirement = buildKillRequirement(monster);
+            killRequirements[slot] = requirement;
+            killRequirementVersions[slot] = liveCountsVersion;
         }
-        return healthLost;
+        return requirement;
+    }
+
+    private CapabilityVector buildKillRequirement(Monster monster){
+        int types = liveCountByType.length;
+        boolean[] inChain = new boolean[types];
+        //each type is pushed at most once per protected type, so this bounds the stack
+        int[] toVisit = new int[types * (types + 1) + 1];
+        int top = 0;
+        if(monster.getProtectorId() != TypeRegistry.NONE){
+            toVisit[top++] = monster.getProtectorId();
+        }
+        while(top > 0){
+            int type = toVisit[--top];
+            if(inChain[type] || liveCountByType[type] == 0){
+                continue;
+            }
+            inChain[type] = true;
+            int[] protectorCounts = liveCountByTypeAndProtector[type];
+            for(int i = 1; i < protectorCounts.length; i++){
+                if(protectorCounts[i] > 0){
+                    toVisit[top++] = i - 1;
+                }
+            }
+        }
+        CapabilityVector requirement = new CapabilityVector();
+        long chainLength = 0;
+        long chainExposure = 0;
+        for(int type = 0; type < types; type++){
+            int count = inChain[type] ? liveCountByType[type] : (type == monster.getTypeId() ? 1 : 0);
+            if(count == 0){
+                continue;
+            }
+            chainLength += count;
+            chainExposure += (long)count * TypeRegistry.getPlayerHealthLostPerExposure(type);
+            requirement.addAmmunition(TypeRegistry.getWeaponNeededToKill(type),count * TypeRegistry.getAmmunitionCountNeededToKill(type));
+        }
+        long exposure = this.playerHealthLostPerEncounter;
+        long minHealth = Math.max(exposure,chainLength * (exposure - chainExposure) + chainExposure);
+        requirement.setHealth((int)Math.min(Integer.MAX_VALUE,minHealth));
+        return requirement;
+    }
+
+    /**
+     * @return what a single player must at least have to kill every live monster in this room:
+     * every weapon needed, the total ammunition for each, and enough health to enter the room
+     */
+    public CapabilityVector getCompletionRequirement(){
+        return MonsterColumns.getCompletionRequirement(liveCountByType);
+    }
+
+    /**
+     * @return how many monsters of each type are live, by TypeRegistry id
+     */
+    protected int[] getLiveMonsterCountByType(){
+        return liveCountByType.clone();
     }
 
     /**
      * @return the set of monsters in this room that are dead
      */
     public SortedSet<Monster> getDeadMonsters(){
+        SortedSet<Monster> deadMonsters = new TreeSet<>();
+        for(Monster monster : monsters){
+            if(!isLive(monster)){
+                deadMonsters.add(monster);
+            }
+        }
         return Collections.unmodifiableSortedSet(deadMonsters);
     }
 }
\ No newline at end of file
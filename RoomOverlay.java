@@ -0,0 +1,157 @@
+package edu.yu.cs.intro.doomGame;
+
+/**
+ * The per-game state of a room whose layout and rewards come from a shared RoomTemplate: which monsters are dead,
+ * how much health partly attacked monsters have left, and the room aggregates. Monsters are identified by their index in the template.
+ * OverlayEngine plays a game of overlays with GameBot, loading each room into a Room with #load for its pass and storing
+ * what happened back with #store.
+ */
+public class RoomOverlay {
+    private RoomTemplate template;
+    /**bit i is set once monster i is dead, laid out for MonsterColumns reductions*/
+    private long[] dead;
+    /**remaining health per monster; only allocated once a monster survives an attack*/
+    private int[] remainingHealth;
+    private int liveMonsterCount;
+    private int playerHealthLostPerEncounter;
+    private int dangerLevel;
+
+    protected RoomOverlay(RoomTemplate template){
+        this.template = template;
+        this.dead = new long[MonsterColumns.wordsFor(template.getMonsterCount())];
+        this.liveMonsterCount = template.getMonsterCount();
+        this.playerHealthLostPerEncounter = template.getPlayerHealthLostPerEncounter();
+        this.dangerLevel = template.getDangerLevel();
+    }
+
+    public RoomTemplate getTemplate(){
+        return this.template;
+    }
+
+    public boolean isDead(int monster){
+        if(monster < 0 || monster >= template.getMonsterCount()){
+            throw new IndexOutOfBoundsException(monster);
+        }
+        return (dead[monster >>> 6] & (1L << monster)) != 0;
+    }
+
+    /**
+     * Attack the given monster with the given weapon, firing the given number of rounds at it. If it dies, the room aggregates are updated.
+     * @param monster
+     * @param weapon
+     * @param rounds
+     * @return indicates if the monster is dead after this attack
+     * @throws IllegalArgumentException if the weapon is one that doesn't hurt this monster, if the weapon is null, or if rounds < 1
+     * @throws IllegalStateException if the monster is already dead
+     * @see Monster#attack(Weapon, int)
+     */
+    public boolean attack(int monster, Weapon weapon, int rounds){
+        if(isDead(monster)){
+            throw new IllegalStateException();
+        }
+        MonsterType type = template.getMonsterType(monster);
+        if(weapon == null || type.weaponNeededToKill.ordinal() > weapon.ordinal() || rounds < 1){
+            throw new IllegalArgumentException();
+        }
+        int health = remainingHealth == null ? type.ammunitionCountNeededToKill : remainingHealth[monster];
+        if(rounds >= health){
+            dead[monster >>> 6] |= 1L << monster;
+            liveMonsterCount--;
+            playerHealthLostPerEncounter -= type.playerHealthLostPerExposure;
+            dangerLevel -= type.ordinal() + 1;
+            return true;
+        }
+        if(remainingHealth == null){
+            remainingHealth = new int[template.getMonsterCount()];
+            for(int i = 0; i < remainingHealth.length; i++){
+                remainingHealth[i] = template.getMonsterType(i).ammunitionCountNeededToKill;
+            }
+        }
+        remainingHealth[monster] = health - rounds;
+        return false;
+    }
+
+    /**
+     * @param monster
+     * @return the rounds still needed to kill the monster, 0 if it is dead
+     */
+    public int getRemainingHealth(int monster){
+        if(isDead(monster)){
+            return 0;
+        }
+        return remainingHealth == null ? template.getMonsterType(monster).ammunitionCountNeededToKill : remainingHealth[monster];
+    }
+
+    /**
+     * build a Room in this overlay's state: a new room from the template, with the monsters that are dead here killed and
+     * the ones that were partly attacked here wounded
+     * @param monsters filled with the room's monsters, by their index in the template
+     * @return the room
+     */
+    protected Room load(Monster[] monsters){
+        Room room = template.newRoom(monsters);
+        for(int i = 0; i < monsters.length; i++){
+            Monster monster = monsters[i];
+            int weapon = TypeRegistry.getWeaponNeededToKill(monster.getTypeId());
+            if(isDead(i)){
+                monster.attack(weapon,monster.getRemainingHealth());
+                room.monsterKilled(monster);
+            }else if(getRemainingHealth(i) < monster.getRemainingHealth()){
+                monster.attack(weapon,monster.getRemainingHealth() - getRemainingHealth(i));
+            }
+        }
+        return room;
+    }
+
+    /**
+     * record what happened to the monsters of a room built by #load: each monster here is attacked with the rounds it took there,
+     * so ones killed there die here and leave the aggregates
+     * @param monsters the monsters #load filled in
+     */
+    protected void store(Monster[] monsters){
+        for(int i = 0; i < monsters.length; i++){
+            int rounds = getRemainingHealth(i) - (monsters[i].isDead() ? 0 : monsters[i].getRemainingHealth());
+            if(rounds > 0){
+                attack(i,template.getMonsterType(i).weaponNeededToKill,rounds);
+            }
+        }
+    }
+
+    public int getLiveMonsterCount(){
+        return this.liveMonsterCount;
+    }
+
+    /**
+     * @see Room#getPlayerHealthLostPerEncounter()
+     */
+    public int getPlayerHealthLostPerEncounter(){
+        return this.playerHealthLostPerEncounter;
+    }
+
+    /**
+     * @see Room#getDangerLevel()
+     */
+    public int getDangerLevel(){
+        return this.dangerLevel;
+    }
+
+    /**
+     * Count the live monsters of each type over the whole room, rather than from the aggregates kept as monsters die,
+     * e.g. to check those aggregates after loading or replaying a game
+     * @return how many monsters of each type are live, by type ordinal
+     */
+    public int[] getLiveMonsterCountByType(){
+        return template.getMonsterTypes().countLiveByType(dead);
+    }
+
+    /**
+     * @see Room#getCompletionRequirement()
+     */
+    public CapabilityVector getCompletionRequirement(){
+        return MonsterColumns.getCompletionRequirement(getLiveMonsterCountByType());
+    }
+
+    public boolean isCompleted(){
+        return this.liveMonsterCount == 0;
+    }
+}
@@ -0,0 +1,41 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.SortedSet;
+
+/**
+ * The rooms of a game kept in some form other than Room objects, e.g. an OffHeapWorld, or the RoomOverlays of a game over
+ * shared RoomTemplates. GameBot#play(RoomStore, SortedSet) plays them with GameBot's own moves, one room at a time: each room
+ * is loaded into a Room for its pass and what happened to it is stored back, so only the room being played is ever held as
+ * Room and Monster objects.
+ */
+public interface RoomStore {
+    int getRoomCount();
+
+    /**
+     * @param room
+     * @return how many monsters the room has, dead or alive
+     */
+    int getMonsterCount(int room);
+
+    /**
+     * @param room
+     * @return true if every monster in the room is dead
+     */
+    boolean isCompleted(int room);
+
+    /**
+     * build a Room in the room's current state
+     * @param room
+     * @param monsters filled with the room's monsters, in the order the store keeps them
+     * @return the room
+     */
+    Room loadRoom(int room, Monster[] monsters);
+
+    /**
+     * store what happened in a room during the pass it was loaded for
+     * @param room
+     * @param monsters the monsters #loadRoom filled in
+     * @param players the players, after the pass
+     */
+    void storeRoom(int room, Monster[] monsters, SortedSet<Player> players);
+}
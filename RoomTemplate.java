@@ -0,0 +1,167 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * The immutable part of a Room: its name, the types and custom protectors of its monsters, and its rewards.
+ * A template can be shared by any number of games played over the same map. Each game keeps only a small RoomOverlay
+ * with the state that killing monsters changes. OverlayEngine plays a game of overlays with GameBot's own moves, loading
+ * only the room being played into a Room; a game that needs all its rooms as Room objects gets them from #newRoom,
+ * which shares the template's name and rewards instead of copying them.
+ */
+public class RoomTemplate {
+    private String name;
+    private MonsterColumns monsterTypes;
+    /**null if no monster has a custom protector*/
+    private MonsterType[] customProtectedBy;
+    private Set<Weapon> weaponsWonUponCompletion;
+    private Map<Weapon,Integer> ammoWonUponCompletion;
+    private int healthWonUponCompletion;
+    private int[] monsterCountByType;
+    private int playerHealthLostPerEncounter;
+    private int dangerLevel;
+
+    /**
+     * @param monsterTypes the type of each monster in the room
+     * @param customProtectedBy the custom protector of each monster in the room, or null for a monster protected according to its type. May itself be null if no monster has a custom protector.
+     * @param weaponsWonUponCompletion weapons a player gains when killing the last monster in this room
+     * @param ammoWonUponCompletion ammunition a player gains when killing the last monster in this room
+     * @param healthWonUponCompletion health a player gains when killing the last monster in this room
+     * @param name the room's name
+     * @throws IllegalArgumentException if monsterTypes is null or contains null, or customProtectedBy is a different length than monsterTypes
+     */
+    public RoomTemplate(MonsterType[] monsterTypes, MonsterType[] customProtectedBy, Set<Weapon> weaponsWonUponCompletion, Map<Weapon,Integer> ammoWonUponCompletion, int healthWonUponCompletion, String name){
+        if(monsterTypes == null || (customProtectedBy != null && customProtectedBy.length != monsterTypes.length)){
+            throw new IllegalArgumentException();
+        }
+        this.monsterTypes = new MonsterColumns(monsterTypes);
+        //most rooms have no custom protectors, and then need no array for them
+        this.customProtectedBy = customProtectedBy == null || Arrays.stream(customProtectedBy).allMatch(Objects::isNull) ? null : customProtectedBy.clone();
+        this.monsterCountByType = this.monsterTypes.countLiveByType(null);
+        this.playerHealthLostPerEncounter = MonsterColumns.getPlayerHealthLostPerEncounter(monsterCountByType);
+        this.dangerLevel = MonsterColumns.getDangerLevel(monsterCountByType);
+        this.weaponsWonUponCompletion = Collections.unmodifiableSet(weaponsWonUponCompletion.isEmpty() ? EnumSet.noneOf(Weapon.class) : EnumSet.copyOf(weaponsWonUponCompletion));
+        this.ammoWonUponCompletion = Collections.unmodifiableMap(new EnumMap<>(ammoWonUponCompletion.isEmpty() ? new EnumMap<>(Weapon.class) : ammoWonUponCompletion));
+        this.healthWonUponCompletion = healthWonUponCompletion;
+        this.name = name;
+    }
+
+    /**
+     * create a template with the layout and rewards of the given room, as if none of its monsters had been killed
+     * @param room
+     * @return the template
+     */
+    public static RoomTemplate of(Room room){
+        SortedSet<Monster> monsters = room.getMonsters();
+        MonsterType[] types = new MonsterType[monsters.size()];
+        MonsterType[] protectors = new MonsterType[monsters.size()];
+        int i = 0;
+        for(Monster monster : monsters){
+            types[i] = monster.getMonsterType();
+            if(monster.getProtectedBy() != monster.getMonsterType().getProtectedBy()){
+                protectors[i] = monster.getProtectedBy();
+            }
+            i++;
+        }
+        return new RoomTemplate(types,protectors,room.getWeaponsWonUponCompletion(),room.getAmmoWonUponCompletion(),room.getHealthWonUponCompletion(),room.getName());
+    }
+
+    /**
+     * create a new Room, with all its monsters alive, for a game played with a GameBot. The room shares this template's name and rewards,
+     * but has its own Monsters and sets of them, as every Room does, so it costs about as much memory as a room built without a template.
+     * @return the new room
+     */
+    public Room newRoom(){
+        return newRoom(new Monster[getMonsterCount()]);
+    }
+
+    /**
+     * create a new Room, with all its monsters alive
+     * @param monsters filled with the room's monsters, by their index in this template
+     * @return the new room
+     */
+    protected Room newRoom(Monster[] monsters){
+        for(int i = 0; i < monsterTypes.size(); i++){
+            MonsterType type = monsterTypes.getMonsterType(i);
+            MonsterType custom = customProtectedBy == null ? null : customProtectedBy[i];
+            monsters[i] = custom == null ? new Monster(type) : new Monster(type,custom);
+        }
+        return new Room(new TreeSet<>(Arrays.asList(monsters)),weaponsWonUponCompletion,ammoWonUponCompletion,healthWonUponCompletion,name);
+    }
+
+    /**
+     * @return a new per-game overlay for this template, with all monsters alive
+     */
+    public RoomOverlay newOverlay(){
+        return new RoomOverlay(this);
+    }
+
+    public String getName(){
+        return this.name;
+    }
+
+    public int getMonsterCount(){
+        return this.monsterTypes.size();
+    }
+
+    public MonsterType getMonsterType(int monster){
+        return this.monsterTypes.getMonsterType(monster);
+    }
+
+    /**
+     * @return the packed types of the room's monsters, for reductions over them
+     */
+    protected MonsterColumns getMonsterTypes(){
+        return this.monsterTypes;
+    }
+
+    /**
+     * @param type
+     * @return how many of the room's monsters are of the given type
+     */
+    public int getMonsterCount(MonsterType type){
+        return this.monsterCountByType[type.ordinal()];
+    }
+
+    /**
+     * @param monster
+     * @return the monster's custom protector if it has one, otherwise the protector of its type
+     * @see Monster#getProtectedBy()
+     */
+    public MonsterType getProtectedBy(int monster){
+        MonsterType custom = customProtectedBy == null ? null : customProtectedBy[monster];
+        return custom == null ? getMonsterType(monster).getProtectedBy() : custom;
+    }
+
+    /**
+     * @return the unmodifiable set of weapons the player who completes the room is rewarded with
+     */
+    public Set<Weapon> getWeaponsWonUponCompletion(){
+        return this.weaponsWonUponCompletion;
+    }
+
+    /**
+     * @return the unmodifiable per-weapon map of ammunition the player who completes the room is rewarded with
+     */
+    public Map<Weapon,Integer> getAmmoWonUponCompletion(){
+        return this.ammoWonUponCompletion;
+    }
+
+    public int getHealthWonUponCompletion(){
+        return this.healthWonUponCompletion;
+    }
+
+    /**
+     * @return the health lost per encounter when every monster in the room is alive
+     */
+    public int getPlayerHealthLostPerEncounter(){
+        return this.playerHealthLostPerEncounter;
+    }
+
+    /**
+     * @return the danger level when every monster in the room is alive
+     */
+    public int getDangerLevel(){
+        return this.dangerLevel;
+    }
+}
@@ -0,0 +1,370 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Reads and writes game scenarios and their outcomes as text, so they can be sent to and from a SimulationServer.
+ * Every line is a record of tab-separated fields, and every message ends with a line holding only END.
+ *
+ * A scenario is made of these records, with each room's monsters following it:
+ * ROOM, name, health won, weapons won (comma-separated, may be empty), ammunition won (WEAPON=rounds, comma-separated, may be empty)
+ * MONSTER, type, custom protector type (may be empty), remaining health (only for a wounded monster)
+ * PLAYER, name, health, weapons held with their ammunition (WEAPON=rounds, comma-separated),
+ * ammunition held without its weapon (WEAPON=rounds, comma-separated; only when the player has some)
+ * Monster types and the weapons players hold are named as in the TypeRegistry, so they may be types defined at runtime;
+ * the weapons and ammunition won in rooms are Weapon constants.
+ *
+ * An outcome is a RESULT record holding whether every room was completed, followed by one
+ * ROOM, name, completed, live monster count
+ * record per room. A request that could not be played is answered with an ERROR record holding the reason.
+ *
+ * Usage: ScenarioCodec [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * decodes generated scenarios and checks that encoding them, before and after they are played, and decoding the result again
+ * gives back the same message, and that the decoded copy plays to the same result as the original.
+ */
+public class ScenarioCodec {
+    public static final String END = "END";
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        int scenarios = 0;
+        int failures = 0;
+        for(int i = 0; i < count; i++){
+            List<List<String>> messages;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                messages = readMessages(reader);
+            }
+            for(List<String> lines : messages){
+                Scenario original = decodeWorld(lines);
+                wound(original,new Random(i));
+                String encoded = encodeScenario(original.getRooms(),original.getPlayers());
+                Scenario copy = decodeWorld(linesOf(encoded));
+                String failure = null;
+                if(!encodeScenario(copy.getRooms(),copy.getPlayers()).equals(encoded)){
+                    failure = "decoding and encoding the scenario changed it";
+                }else if(!describe(copy.getRooms(),copy.getPlayers()).equals(describe(original.getRooms(),original.getPlayers()))){
+                    failure = "the decoded copy lost some of the scenario's state";
+                }
+                GameBot bot = new GameBot(original.getRooms(),original.getPlayers());
+                GameBot copyBot = new GameBot(copy.getRooms(),copy.getPlayers());
+                if(failure == null && !encodeResult(copyBot,copyBot.play()).equals(encodeResult(bot,bot.play()))){
+                    failure = "the decoded copy played to a different result";
+                }
+                //playing changed what the sets are sorted by, so encode the played game in its new order, as decoding it will
+                String played = encodeScenario(resorted(original.getRooms()),resorted(original.getPlayers()));
+                Scenario playedCopy = decodeWorld(linesOf(played));
+                if(failure == null && !encodeScenario(playedCopy.getRooms(),playedCopy.getPlayers()).equals(played)){
+                    failure = "decoding and encoding the played game changed it";
+                }else if(failure == null && !describe(playedCopy.getRooms(),playedCopy.getPlayers())
+                        .equals(describe(resorted(original.getRooms()),resorted(original.getPlayers())))){
+                    failure = "the decoded copy lost some of the played game's state";
+                }
+                scenarios++;
+                if(failure != null){
+                    failures++;
+                    System.out.println("scenario " + (scenarios - 1) + ": " + failure);
+                }
+            }
+        }
+        System.out.println(failures + " failures over " + scenarios + " scenarios");
+        if(failures > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * wound some of the scenario's monsters and give some of its players ammunition for weapons they don't hold,
+     * so the round trip covers the state a game in progress has
+     */
+    private static void wound(Scenario scenario, Random random){
+        for(Room room : scenario.getRooms()){
+            for(Monster monster : room.getLiveMonsters()){
+                if(monster.getRemainingHealth() > 1 && random.nextInt(3) == 0){
+                    monster.attack(TypeRegistry.getWeaponNeededToKill(monster.getTypeId()),1 + random.nextInt(monster.getRemainingHealth() - 1));
+                }
+            }
+        }
+        for(Player player : scenario.getPlayers()){
+            int weapon = random.nextInt(TypeRegistry.getWeaponCount());
+            if(!player.hasWeapon(weapon)){
+                player.addAmmunition(weapon,random.nextInt(10));
+            }
+        }
+    }
+
+    /**
+     * @return every live monster's remaining health, and every player's health and ammunition, with or without the weapon,
+     * read from the objects rather than through the codec
+     */
+    private static String describe(Collection<Room> rooms, Collection<Player> players){
+        StringBuilder state = new StringBuilder();
+        for(Room room : rooms){
+            state.append("room ").append(room.getName());
+            for(Monster monster : room.getLiveMonsters()){
+                state.append(' ').append(TypeRegistry.getMonsterTypeName(monster.getTypeId())).append('=').append(monster.getRemainingHealth());
+            }
+            state.append('\n');
+        }
+        for(Player player : players){
+            state.append("player ").append(player.getName()).append(" health=").append(player.getHealth());
+            for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon) || player.getAmmunitionWithoutWeapon().containsKey(weapon)){
+                    state.append(' ').append(player.hasWeapon(weapon) ? "" : "without ").append(TypeRegistry.getWeaponName(weapon))
+                            .append('=').append(player.getAmmunitionRoundsForWeapon(weapon));
+                }
+            }
+            state.append('\n');
+        }
+        return state.toString();
+    }
+
+    private static <T extends Comparable<T>> List<T> resorted(Collection<T> items){
+        List<T> sorted = new ArrayList<>(items);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * @return the lines of the one message in the given text, without its END line
+     */
+    private static List<String> linesOf(String message) throws IOException {
+        try(BufferedReader reader = new BufferedReader(new StringReader(message))){
+            return readMessages(reader).get(0);
+        }
+    }
+
+    /**
+     * @param rooms
+     * @param players
+     * @return the given rooms and players, in their current state, as a scenario message
+     */
+    public static String encodeScenario(Collection<Room> rooms, Collection<Player> players){
+        StringBuilder message = new StringBuilder();
+        for(Room room : rooms){
+            StringJoiner weapons = new StringJoiner(",");
+            for(Weapon weapon : room.getWeaponsWonUponCompletion()){
+                weapons.add(weapon.name());
+            }
+            message.append("ROOM\t").append(room.getName()).append('\t').append(room.getHealthWonUponCompletion()).append('\t')
+                    .append(weapons).append('\t').append(encodeAmmo(room.getAmmoWonUponCompletion())).append('\n');
+            for(Monster monster : room.getLiveMonsters()){
+                int type = monster.getTypeId();
+                int custom = monster.getProtectorId() == TypeRegistry.getProtectedBy(type) ? TypeRegistry.NONE : monster.getProtectorId();
+                message.append("MONSTER\t").append(TypeRegistry.getMonsterTypeName(type)).append('\t')
+                        .append(custom == TypeRegistry.NONE ? "" : TypeRegistry.getMonsterTypeName(custom));
+                if(monster.getRemainingHealth() < TypeRegistry.getAmmunitionCountNeededToKill(type)){
+                    message.append('\t').append(monster.getRemainingHealth());
+                }
+                message.append('\n');
+            }
+        }
+        for(Player player : players){
+            StringJoiner held = new StringJoiner(",");
+            StringJoiner without = new StringJoiner(",");
+            Map<Integer,Integer> ammoWithoutWeapon = player.getAmmunitionWithoutWeapon();
+            for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon)){
+                    held.add(TypeRegistry.getWeaponName(weapon) + "=" + player.getAmmunitionRoundsForWeapon(weapon));
+                }else if(ammoWithoutWeapon.containsKey(weapon)){
+                    without.add(TypeRegistry.getWeaponName(weapon) + "=" + ammoWithoutWeapon.get(weapon));
+                }
+            }
+            message.append("PLAYER\t").append(player.getName()).append('\t').append(player.getHealth()).append('\t').append(held);
+            if(without.length() > 0){
+                message.append('\t').append(without);
+            }
+            message.append('\n');
+        }
+        return message.append(END).append('\n').toString();
+    }
+
+    /**
+     * build a new GameBot for the scenario in the given lines
+     * @param lines the lines of a scenario message, without the closing END line
+     * @return the bot, ready to play
+     * @throws IllegalArgumentException if the lines are not a valid scenario
+     */
+    public static GameBot decodeScenario(List<String> lines){
+        Scenario scenario = decodeWorld(lines);
+        return new GameBot(scenario.getRooms(),scenario.getPlayers());
+    }
+
+    /**
+     * build new rooms and players for the scenario in the given lines
+     * @param lines the lines of a scenario message, without the closing END line
+     * @return the rooms and players, ready to be played by any GameEngine
+     * @throws IllegalArgumentException if the lines are not a valid scenario
+     */
+    public static Scenario decodeWorld(List<String> lines){
+        SortedSet<Room> rooms = new TreeSet<>();
+        SortedSet<Player> players = new TreeSet<>();
+        String[] roomFields = null;
+        SortedSet<Monster> roomMonsters = null;
+        try{
+            for(String line : lines){
+                if(line.isEmpty()){
+                    continue;
+                }
+                String[] fields = line.split("\t",-1);
+                switch(fields[0]){
+                    case "ROOM":
+                        if(roomFields != null){
+                            rooms.add(newRoom(roomFields,roomMonsters));
+                        }
+                        roomFields = fields;
+                        roomMonsters = new TreeSet<>();
+                        break;
+                    case "MONSTER":
+                        if(roomFields == null){
+                            throw new IllegalArgumentException("MONSTER before any ROOM");
+                        }
+                        int type = TypeRegistry.getMonsterTypeId(fields[1]);
+                        Monster monster = new Monster(type,fields.length < 3 || fields[2].isEmpty() ? TypeRegistry.NONE : TypeRegistry.getMonsterTypeId(fields[2]));
+                        if(fields.length > 3){
+                            int remaining = Integer.parseInt(fields[3]);
+                            if(remaining < 1 || remaining > monster.getRemainingHealth()){
+                                throw new IllegalArgumentException("a monster's remaining health must be between 1 and its full health: " + line);
+                            }
+                            if(remaining < monster.getRemainingHealth()){
+                                monster.attack(TypeRegistry.getWeaponNeededToKill(type),monster.getRemainingHealth() - remaining);
+                            }
+                        }
+                        roomMonsters.add(monster);
+                        break;
+                    case "PLAYER":
+                        Player player = new Player(fields[1],Integer.parseInt(fields[2]));
+                        if(fields.length > 3 && !fields[3].isEmpty()){
+                            for(String entry : fields[3].split(",")){
+                                String[] parts = entry.split("=");
+                                int weapon = TypeRegistry.getWeaponId(parts[0]);
+                                player.addWeapon(weapon);
+                                player.changeAmmunitionRoundsForWeapon(weapon,Integer.parseInt(parts[1]) - player.getAmmunitionRoundsForWeapon(weapon));
+                            }
+                        }
+                        if(fields.length > 4 && !fields[4].isEmpty()){
+                            for(String entry : fields[4].split(",")){
+                                String[] parts = entry.split("=");
+                                int weapon = TypeRegistry.getWeaponId(parts[0]);
+                                if(player.hasWeapon(weapon)){
+                                    throw new IllegalArgumentException("ammunition without its weapon for a weapon the player holds: " + line);
+                                }
+                                player.addAmmunition(weapon,Integer.parseInt(parts[1]));
+                            }
+                        }
+                        players.add(player);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown record " + fields[0]);
+                }
+            }
+            if(roomFields != null){
+                rooms.add(newRoom(roomFields,roomMonsters));
+            }
+        }catch(ArrayIndexOutOfBoundsException e){
+            throw new IllegalArgumentException("record is missing fields",e);
+        }
+        return new Scenario(rooms,players);
+    }
+
+    /**
+     * read every message from the given reader
+     * @param reader
+     * @return the lines of each message, without their closing END lines. Lines after the last END line are ignored.
+     * @throws IOException
+     */
+    public static List<List<String>> readMessages(BufferedReader reader) throws IOException {
+        List<List<String>> messages = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        String line;
+        while((line = reader.readLine()) != null){
+            if(line.equals(END)){
+                messages.add(lines);
+                lines = new ArrayList<>();
+            }else{
+                lines.add(line);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @param bot a bot that has played its game
+     * @param success what GameBot#play returned
+     * @return the outcome of the game as a message
+     */
+    public static String encodeResult(GameBot bot, boolean success){
+        StringBuilder message = new StringBuilder("RESULT\t").append(success).append('\n');
+        for(Room room : bot.getAllRooms()){
+            message.append("ROOM\t").append(room.getName()).append('\t').append(room.isCompleted()).append('\t').append(room.getLiveMonsters().size()).append('\n');
+        }
+        return message.append(END).append('\n').toString();
+    }
+
+    /**
+     * @param reason
+     * @return an ERROR message holding the given reason
+     */
+    public static String encodeError(String reason){
+        return "ERROR\t" + String.valueOf(reason).replace('\t',' ').replace('\n',' ') + "\n" + END + "\n";
+    }
+
+    /**
+     * The rooms and players of a decoded scenario
+     */
+    public static class Scenario {
+        private SortedSet<Room> rooms;
+        private SortedSet<Player> players;
+
+        private Scenario(SortedSet<Room> rooms, SortedSet<Player> players){
+            this.rooms = rooms;
+            this.players = players;
+        }
+
+        public SortedSet<Room> getRooms(){
+            return this.rooms;
+        }
+
+        public SortedSet<Player> getPlayers(){
+            return this.players;
+        }
+    }
+
+    private static Room newRoom(String[] fields, SortedSet<Monster> monsters){
+        Set<Weapon> weapons = EnumSet.noneOf(Weapon.class);
+        if(fields.length > 3 && !fields[3].isEmpty()){
+            for(String weapon : fields[3].split(",")){
+                weapons.add(Weapon.valueOf(weapon));
+            }
+        }
+        return new Room(monsters,weapons,decodeAmmo(fields.length > 4 ? fields[4] : ""),Integer.parseInt(fields[2]),fields[1]);
+    }
+
+    private static String encodeAmmo(Map<Weapon,Integer> ammo){
+        StringJoiner joiner = new StringJoiner(",");
+        for(Map.Entry<Weapon,Integer> entry : ammo.entrySet()){
+            joiner.add(entry.getKey().name() + "=" + entry.getValue());
+        }
+        return joiner.toString();
+    }
+
+    private static Map<Weapon,Integer> decodeAmmo(String field){
+        Map<Weapon,Integer> ammo = new EnumMap<>(Weapon.class);
+        if(!field.isEmpty()){
+            for(String entry : field.split(",")){
+                String[] parts = entry.split("=");
+                ammo.put(Weapon.valueOf(parts[0]),Integer.parseInt(parts[1]));
+            }
+        }
+        return ammo;
+    }
+}
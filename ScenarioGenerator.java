@@ -0,0 +1,114 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.util.*;
+
+/**
+ * Generates random game scenarios, as ScenarioCodec messages, for benchmarking and for comparing engines.
+ * The same seed and sizes always give the same scenarios.
+ */
+public class ScenarioGenerator {
+    private Random random;
+    private int rooms;
+    private int monstersPerRoom;
+    private int players;
+    private int customProtectorOneIn;
+    private int woundedOneIn;
+
+    /**
+     * a generator whose monsters are all protected according to their type
+     * @see #ScenarioGenerator(long, int, int, int, int)
+     */
+    public ScenarioGenerator(long seed, int rooms, int monstersPerRoom, int players){
+        this(seed,rooms,monstersPerRoom,players,0);
+    }
+
+    /**
+     * @param seed
+     * @param rooms the number of rooms in each scenario
+     * @param monstersPerRoom the most monsters in a room; each room gets between 1 and this many
+     * @param players the number of players in each scenario
+     * @param customProtectorOneIn about one monster in this many gets a custom protector, of a type killed before its own,
+     *                             or none do if it is 0
+     * @throws IllegalArgumentException if rooms, monstersPerRoom or players is < 1, or customProtectorOneIn < 0
+     */
+    public ScenarioGenerator(long seed, int rooms, int monstersPerRoom, int players, int customProtectorOneIn){
+        this(seed,rooms,monstersPerRoom,players,customProtectorOneIn,0);
+    }
+
+    /**
+     * @param seed
+     * @param rooms the number of rooms in each scenario
+     * @param monstersPerRoom the most monsters in a room; each room gets between 1 and this many
+     * @param players the number of players in each scenario
+     * @param customProtectorOneIn about one monster in this many gets a custom protector, of a type killed before its own,
+     *                             or none do if it is 0
+     * @param woundedOneIn about one monster in this many starts out wounded, as in a game in progress, or none do if it is 0
+     * @throws IllegalArgumentException if rooms, monstersPerRoom or players is < 1, or customProtectorOneIn or woundedOneIn < 0
+     */
+    public ScenarioGenerator(long seed, int rooms, int monstersPerRoom, int players, int customProtectorOneIn, int woundedOneIn){
+        if(rooms < 1 || monstersPerRoom < 1 || players < 1 || customProtectorOneIn < 0 || woundedOneIn < 0){
+            throw new IllegalArgumentException();
+        }
+        this.random = new Random(seed);
+        this.rooms = rooms;
+        this.monstersPerRoom = monstersPerRoom;
+        this.players = players;
+        this.customProtectorOneIn = customProtectorOneIn;
+        this.woundedOneIn = woundedOneIn;
+    }
+
+    /**
+     * @return the next scenario, as a message ending with its END line
+     */
+    public String next(){
+        StringBuilder scenario = new StringBuilder();
+        MonsterType[] types = MonsterType.values();
+        Weapon[] weapons = Weapon.values();
+        for(int r = 0; r < rooms; r++){
+            StringJoiner weaponsWon = new StringJoiner(",");
+            StringJoiner ammoWon = new StringJoiner(",");
+            for(Weapon weapon : weapons){
+                if(weapon != Weapon.FIST && random.nextInt(4) == 0){
+                    weaponsWon.add(weapon.name());
+                }
+                if(weapon != Weapon.FIST && random.nextInt(3) == 0){
+                    ammoWon.add(weapon.name() + "=" + (1 + random.nextInt(12)));
+                }
+            }
+            scenario.append("ROOM\tRoom ").append(r).append('\t').append(random.nextInt(3) * 5).append('\t')
+                    .append(weaponsWon).append('\t').append(ammoWon).append('\n');
+            int monsters = 1 + random.nextInt(monstersPerRoom);
+            for(int m = 0; m < monsters; m++){
+                //weaker monsters are more common
+                MonsterType type = types[Math.min(random.nextInt(types.length),random.nextInt(types.length))];
+                scenario.append("MONSTER\t").append(type.name()).append('\t');
+                //protectors killed earlier can't make protection go round in a circle
+                int killOrder = TypeRegistry.getKillOrder(type.ordinal());
+                if(customProtectorOneIn > 0 && killOrder > 0 && random.nextInt(customProtectorOneIn) == 0){
+                    int protectorKillOrder = random.nextInt(killOrder);
+                    for(MonsterType protector : types){
+                        if(TypeRegistry.getKillOrder(protector.ordinal()) == protectorKillOrder){
+                            scenario.append(protector.name());
+                        }
+                    }
+                }
+                int health = TypeRegistry.getAmmunitionCountNeededToKill(type.ordinal());
+                if(woundedOneIn > 0 && health > 1 && random.nextInt(woundedOneIn) == 0){
+                    scenario.append('\t').append(1 + random.nextInt(health - 1));
+                }
+                scenario.append('\n');
+            }
+        }
+        for(int p = 0; p < players; p++){
+            StringJoiner held = new StringJoiner(",");
+            held.add(Weapon.FIST.name() + "=10000000");
+            for(Weapon weapon : weapons){
+                if(weapon != Weapon.FIST && random.nextInt(3) == 0){
+                    held.add(weapon.name() + "=" + random.nextInt(20));
+                }
+            }
+            scenario.append("PLAYER\tPlayer ").append(p).append('\t').append(10 + random.nextInt(20 * rooms)).append('\t').append(held).append('\n');
+        }
+        return scenario.append(ScenarioCodec.END).append('\n').toString();
+    }
+}
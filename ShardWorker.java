@@ -0,0 +1,168 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The worker process of a ShardedEngine. It holds the rooms of one shard of the world and clears them with the players the
+ * coordinator leases to it, one room at a time, exactly as GameBot#passThroughRoom would in a single process.
+ *
+ * Commands are read from standard input and results written to standard output, all with DataInput/DataOutput:
+ * RESET forgets every room, ROOM adds a room (as a ScenarioCodec message), and LEASE hands over players to clear a room with.
+ * Every LEASE is answered, in order, with every kill GameBot#killMonster made, as the room index of the monster and the position
+ * of the leased player that killed it, or with the reason the room could not be played. A room's indexes follow the order its
+ * ROOM message listed the monsters in, and the players are numbered in the order they were leased.
+ */
+public class ShardWorker {
+    protected static final byte RESET = 0;
+    protected static final byte ROOM = 1;
+    protected static final byte LEASE = 2;
+
+    private Map<Integer,Room> rooms;
+
+    public ShardWorker(){
+        this.rooms = new HashMap<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        //nothing else may write to the coordinator's pipe
+        System.setOut(System.err);
+        new ShardWorker().serve(in,out);
+    }
+
+    /**
+     * answer commands until the input ends
+     * @param in
+     * @param out
+     * @throws IOException
+     */
+    protected void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        while(true){
+            int command = in.read();
+            if(command < 0){
+                return;
+            }
+            switch(command){
+                case RESET:
+                    rooms.clear();
+                    break;
+                case ROOM:
+                    int index = in.readInt();
+                    byte[] message = new byte[in.readInt()];
+                    in.readFully(message);
+                    List<String> lines = ScenarioCodec.readMessages(new BufferedReader(new StringReader(new String(message,StandardCharsets.UTF_8)))).get(0);
+                    rooms.put(index,ScenarioCodec.decodeWorld(lines).getRooms().first());
+                    break;
+                case LEASE:
+                    lease(in,out);
+                    out.flush();
+                    break;
+                default:
+                    throw new IOException("unknown command " + command);
+            }
+        }
+    }
+
+    private void lease(DataInputStream in, DataOutputStream out) throws IOException {
+        int index = in.readInt();
+        int count = in.readInt();
+        List<Player> leased = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            leased.add(readPlayer(in));
+        }
+        Room room = rooms.get(index);
+        List<Integer> kills = new ArrayList<>();
+        out.writeInt(index);
+        try{
+            if(room == null){
+                throw new IllegalStateException("no room " + index + " in this shard");
+            }
+            //the players keep the order the coordinator leased them in, which is the order of the game's set of players
+            Map<Player,Integer> positions = new IdentityHashMap<>();
+            for(Player player : leased){
+                positions.put(player,positions.size());
+            }
+            SortedSet<Player> players = new TreeSet<>(Comparator.comparing(positions::get));
+            players.addAll(leased);
+            SortedSet<Room> shard = new TreeSet<>();
+            shard.add(room);
+            GameBot bot = new GameBot(shard,players){
+                @Override
+                protected void killMonster(Player player, Room room, Monster monsterToKill){
+                    kills.add(room.indexOf(monsterToKill));
+                    kills.add(positions.get(player));
+                    super.killMonster(player,room,monsterToKill);
+                }
+            };
+            bot.passThroughRoom(room,null);
+        }catch(RuntimeException | StackOverflowError e){
+            out.writeBoolean(false);
+            out.writeUTF(e.getClass().getName());
+            return;
+        }
+        out.writeBoolean(true);
+        out.writeInt(kills.size() / 2);
+        for(int value : kills){
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * write the player's name, health, and per weapon whether it is held, with its ammunition, and any ammunition held without it
+     * @param player
+     * @param out
+     * @throws IOException
+     */
+    protected static void writePlayer(Player player, DataOutput out) throws IOException {
+        out.writeUTF(player.getName());
+        out.writeInt(player.getHealth());
+        Map<Integer,Integer> withoutWeapon = player.getAmmunitionWithoutWeapon();
+        for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+            out.writeBoolean(player.hasWeapon(weapon));
+            out.writeInt(player.hasWeapon(weapon) ? player.getAmmunitionRoundsForWeapon(weapon) : 0);
+            Integer rounds = withoutWeapon.get(weapon);
+            out.writeBoolean(rounds != null);
+            out.writeInt(rounds == null ? 0 : rounds);
+        }
+    }
+
+    /**
+     * @param in
+     * @return a new player in the state written by #writePlayer
+     * @throws IOException
+     */
+    protected static Player readPlayer(DataInput in) throws IOException {
+        //the health is replaced along with the rest of the state
+        Player player = new Player(in.readUTF(),0);
+        readPlayerState(in,player);
+        return player;
+    }
+
+    /**
+     * read a player written by #writePlayer, after its name, into an existing player with that name
+     * @param in
+     * @param player
+     * @throws IOException
+     */
+    protected static void readPlayerState(DataInput in, Player player) throws IOException {
+        int health = in.readInt();
+        Map<Integer,Integer> weaponAmmo = new HashMap<>();
+        Map<Integer,Integer> withoutWeapon = new HashMap<>();
+        for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+            boolean held = in.readBoolean();
+            int rounds = in.readInt();
+            if(held){
+                weaponAmmo.put(weapon,rounds);
+            }
+            boolean hasRoundsWithout = in.readBoolean();
+            int roundsWithout = in.readInt();
+            if(hasRoundsWithout){
+                withoutWeapon.put(weapon,roundsWithout);
+            }
+        }
+        player.restore(health,weaponAmmo,withoutWeapon);
+    }
+}
@@ -0,0 +1,432 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A GameEngine that splits the rooms of a world across several local ShardWorker processes and plays them in parallel, while
+ * reaching the same result as GameBot playing them one by one in a single process.
+ *
+ * Room i of the game's set of rooms belongs to shard i % workers. This coordinator owns the players. Going through the rooms
+ * in order, it leases each room's worker every live player that holds the weapon and ammunition needed for one of the room's
+ * live monster types; no other player can take part in that room, because a player's state only changes by its own kills.
+ * The worker clears the room and answers with its kills, each a monster and the leased player that killed it. This coordinator
+ * replays them with GameBot#killMonster on its own rooms and players, in the order of the rooms, so they end in the same state
+ * as in a single process.
+ *
+ * A room is only sent out while earlier rooms are still being cleared if what those rooms could do to the players leased for
+ * them can't change the moves made in it. That holds for a player who can't take part in it however those rooms go, and for
+ * one whose health, and ammunition for every weapon it could fire there, either can't change in those rooms or stays above
+ * anything the room could ask for, like the effectively unlimited FIST of generated players. Otherwise the room waits for them.
+ * Rooms whose players don't interact are cleared concurrently.
+ *
+ * Workers are started on first use, and run until #close.
+ */
+public class ShardedEngine implements GameEngine, AutoCloseable {
+    private int workerCount;
+    private List<Worker> workers;
+    private BlockingQueue<Result> results;
+    /**stops the workers if the JVM exits while they run; registered while there are workers*/
+    private Thread shutdownHook;
+
+    /**
+     * an engine with one worker per two available processors, up to four
+     */
+    public ShardedEngine(){
+        this(Math.max(1,Math.min(4,Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    /**
+     * @param workers the number of worker processes
+     * @throws IllegalArgumentException if workers < 1
+     */
+    public ShardedEngine(int workers){
+        if(workers < 1){
+            throw new IllegalArgumentException();
+        }
+        this.workerCount = workers;
+    }
+
+    @Override
+    public String getName(){
+        return "Sharded(" + workerCount + ")";
+    }
+
+    /**
+     * play the game the same way as GameBot#play, across the workers. The given rooms and players are left in the same state
+     * as GameBot would leave them.
+     * @throws IllegalStateException if a worker couldn't play a room, or a worker process failed
+     * @throws IllegalArgumentException if any of the players is still held by a GameBot; see GameBot#releasePlayers
+     */
+    @Override
+    public synchronized boolean play(SortedSet<Room> rooms, SortedSet<Player> players){
+        List<Room> roomList = new ArrayList<>(rooms);
+        List<Player> playerList = new ArrayList<>(players);
+        //replays the workers' kills on the given rooms and players
+        GameBot replay = new GameBot(rooms,players);
+        try{
+            startWorkers();
+            for(Worker worker : workers){
+                worker.out.writeByte(ShardWorker.RESET);
+            }
+            //the worker's copy of a room indexes its monsters in the order they were sent
+            List<List<Monster>> sent = new ArrayList<>();
+            for(int i = 0; i < roomList.size(); i++){
+                sent.add(new ArrayList<>(roomList.get(i).getLiveMonsters()));
+                byte[] message = ScenarioCodec.encodeScenario(Collections.singleton(roomList.get(i)),Collections.emptyList()).getBytes(StandardCharsets.UTF_8);
+                DataOutputStream out = workers.get(i % workerCount).out;
+                out.writeByte(ShardWorker.ROOM);
+                out.writeInt(i);
+                out.writeInt(message.length);
+                out.write(message);
+            }
+            int completedRoomsCounter;
+            do{
+                completedRoomsCounter = countCompleted(roomList);
+                passThroughRooms(roomList,playerList,sent,replay);
+            }while(countCompleted(roomList) > completedRoomsCounter);
+        }catch(IOException e){
+            close();
+            throw new IllegalStateException("lost a worker process",e);
+        }finally{
+            replay.releasePlayers();
+        }
+        return countCompleted(roomList) == roomList.size();
+    }
+
+    private void passThroughRooms(List<Room> rooms, List<Player> players, List<List<Monster>> sent, GameBot replay) throws IOException {
+        SortedMap<Integer,Lease> inFlight = new TreeMap<>();
+        String failure = null;
+        for(int i = 0; i < rooms.size() && failure == null; i++){
+            Room room = rooms.get(i);
+            if(room.isCompleted()){
+                continue;
+            }
+            int[] live = room.getLiveMonsterCountByType();
+            Bounds bounds = new Bounds(room);
+            while(failure == null && conflicts(inFlight.values(),live,bounds)){
+                failure = receive(inFlight,rooms,sent,replay);
+            }
+            if(failure != null){
+                break;
+            }
+            List<Player> leased = new ArrayList<>();
+            for(Player player : players){
+                if(!player.isDead() && couldTakePart(player.getCapabilities(),live)){
+                    leased.add(player);
+                }
+            }
+            if(leased.isEmpty()){
+                continue;
+            }
+            DataOutputStream out = workers.get(i % workerCount).out;
+            out.writeByte(ShardWorker.LEASE);
+            out.writeInt(i);
+            out.writeInt(leased.size());
+            for(Player player : leased){
+                ShardWorker.writePlayer(player,out);
+            }
+            out.flush();
+            inFlight.put(i,new Lease(leased,bounds));
+        }
+        while(!inFlight.isEmpty()){
+            String failed = receive(inFlight,rooms,sent,replay);
+            failure = failure == null ? failed : failure;
+        }
+        if(failure != null){
+            throw new IllegalStateException("a worker could not play a room: " + failure);
+        }
+    }
+
+    /**
+     * @param inFlight the rooms being cleared, or cleared but not yet replayed
+     * @param live the live monsters by type of the room about to be sent out
+     * @param room the most the room about to be sent out could use and give
+     * @return true if what the rooms in flight could do to a player leased for them could change the moves made in the room
+     */
+    private static boolean conflicts(Collection<Lease> inFlight, int[] live, Bounds room){
+        //a player can be leased for several rooms in flight, which could all change it
+        Map<Player,Bounds> pending = new IdentityHashMap<>();
+        for(Lease lease : inFlight){
+            for(Player player : lease.players){
+                pending.computeIfAbsent(player,p -> new Bounds()).add(lease.bounds);
+            }
+        }
+        for(Map.Entry<Player,Bounds> entry : pending.entrySet()){
+            if(!unaffected(entry.getKey(),entry.getValue(),live,room)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param player a player leased for rooms in flight, in the state it was in before them
+     * @param pending the most those rooms could use and give the player
+     * @param live the live monsters by type of the room about to be sent out
+     * @param room the most that room could use and give
+     * @return true if the player makes the same moves in the room, and every check GameBot#canKill makes on it has the same answer,
+     * whether it comes to the room before or after the rooms in flight
+     */
+    private static boolean unaffected(Player player, Bounds pending, int[] live, Bounds room){
+        boolean takesPart = false;
+        for(int type = 0; type < live.length; type++){
+            if(live[type] == 0){
+                continue;
+            }
+            int weapon = TypeRegistry.getWeaponNeededToKill(type);
+            boolean held = player.hasWeapon(weapon);
+            int ammo = held ? player.getAmmunitionRoundsForWeapon(weapon) : player.getAmmunitionWithoutWeapon().getOrDefault(weapon,0);
+            //whichever way things go, a player who could never have the rounds for this type can't fire at it
+            boolean mayHold = held || pending.weaponsWon.get(weapon) || room.weaponsWon.get(weapon);
+            if(!mayHold || (long)Math.max(ammo,5) + pending.mostWon[weapon] + room.mostWon[weapon] < TypeRegistry.getAmmunitionCountNeededToKill(type)){
+                continue;
+            }
+            takesPart = true;
+            boolean unchanged = pending.mostUsed[weapon] == 0 && pending.mostWon[weapon] == 0 && (held || !pending.weaponsWon.get(weapon));
+            //every kill in the room asks for at most all the rounds the room could use, after the rooms in flight and the room used theirs
+            boolean ample = held && (long)ammo - pending.mostUsed[weapon] - 2L * room.mostUsed[weapon] >= 0;
+            if(!unchanged && !ample){
+                return false;
+            }
+        }
+        if(!takesPart){
+            return true;
+        }
+        long leastHealth = player.getHealth() - pending.mostHealthLost - room.mostHealthLost;
+        return (pending.mostHealthLost == 0 && pending.mostHealthWon == 0) || (leastHealth > 0 && leastHealth >= room.healthNeeded);
+    }
+
+    /**
+     * @param capabilities
+     * @param live the live monsters of a room by type
+     * @return true if a player with the given capabilities holds the weapon and ammunition needed for one of the live types
+     */
+    private static boolean couldTakePart(CapabilityVector capabilities, int[] live){
+        for(int type = 0; type < live.length; type++){
+            int weapon = TypeRegistry.getWeaponNeededToKill(type);
+            if(live[type] > 0 && capabilities.hasWeapon(weapon)
+                    && capabilities.getAmmunition(weapon) >= TypeRegistry.getAmmunitionCountNeededToKill(type)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * wait for the next result from any worker, then replay the kills of every room in flight whose result is in, up to the
+     * first one that isn't, so each player meets its rooms in the order a single process would
+     * @param sent the live monsters of each room, in the order they were sent to its worker
+     * @param replay the bot the kills are replayed with
+     * @return the reason a room couldn't be played, or null if every room replayed could be
+     */
+    private String receive(SortedMap<Integer,Lease> inFlight, List<Room> rooms, List<List<Monster>> sent, GameBot replay) throws IOException {
+        Result result;
+        try{
+            result = results.take();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if(result.lost != null){
+            throw result.lost;
+        }
+        Lease arrived = inFlight.get(result.room);
+        if(arrived == null || arrived.result != null){
+            throw new IOException("unexpected result for room " + result.room);
+        }
+        arrived.result = result;
+        String failure = null;
+        while(!inFlight.isEmpty() && inFlight.get(inFlight.firstKey()).result != null){
+            int index = inFlight.firstKey();
+            Lease lease = inFlight.remove(index);
+            if(lease.result.failure != null){
+                failure = failure == null ? lease.result.failure : failure;
+                continue;
+            }
+            Room room = rooms.get(index);
+            List<Monster> monsters = sent.get(index);
+            int[] kills = lease.result.kills;
+            for(int k = 0; k < kills.length; k += 2){
+                if(kills[k] < 0 || kills[k] >= monsters.size() || kills[k + 1] < 0 || kills[k + 1] >= lease.players.size()){
+                    throw new IOException("no monster " + kills[k] + " or leased player " + kills[k + 1] + " in room " + index);
+                }
+                Player player = lease.players.get(kills[k + 1]);
+                replay.killMonster(player,room,monsters.get(kills[k]));
+                replay.reapCompletionRewards(player,room);
+            }
+        }
+        return failure;
+    }
+
+    private static int countCompleted(List<Room> rooms){
+        int completed = 0;
+        for(Room room : rooms){
+            if(room.isCompleted()){
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    private void startWorkers() throws IOException {
+        if(workers != null){
+            return;
+        }
+        workers = new ArrayList<>();
+        //a fresh queue, so nothing from workers stopped by #close can be mistaken for a result
+        results = new LinkedBlockingQueue<>();
+        BlockingQueue<Result> queue = results;
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for(int w = 0; w < workerCount; w++){
+            Process process = new ProcessBuilder(java,"-cp",System.getProperty("java.class.path"),ShardWorker.class.getName())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            Worker worker = new Worker(process);
+            workers.add(worker);
+            Thread reader = new Thread(() -> readResults(worker,queue),"shard-reader-" + w);
+            reader.setDaemon(true);
+            reader.start();
+        }
+        shutdownHook = new Thread(this::close,"shard-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private static void readResults(Worker worker, BlockingQueue<Result> results){
+        DataInputStream in = new DataInputStream(new BufferedInputStream(worker.process.getInputStream()));
+        try{
+            while(true){
+                int room = in.readInt();
+                if(!in.readBoolean()){
+                    results.add(new Result(room,null,in.readUTF()));
+                    continue;
+                }
+                int[] kills = new int[2 * in.readInt()];
+                for(int k = 0; k < kills.length; k++){
+                    kills[k] = in.readInt();
+                }
+                results.add(new Result(room,kills,null));
+            }
+        }catch(IOException e){
+            Result lost = new Result(-1,null,null);
+            lost.lost = new IOException("worker process ended",e);
+            results.add(lost);
+        }
+    }
+
+    /**
+     * stop the worker processes; the engine starts new ones if it plays again
+     */
+    @Override
+    public synchronized void close(){
+        if(workers == null){
+            return;
+        }
+        for(Worker worker : workers){
+            worker.process.destroy();
+        }
+        workers = null;
+        try{
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }catch(IllegalStateException e){
+            //the JVM is exiting, and this is the hook running
+        }
+        shutdownHook = null;
+    }
+
+    private static class Worker {
+        private Process process;
+        private DataOutputStream out;
+
+        private Worker(Process process){
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        }
+    }
+
+    /**
+     * the players leased for a room, and the most the room could use and give any one of them
+     */
+    private static class Lease {
+        private List<Player> players;
+        private Bounds bounds;
+        /**the worker's answer, kept until every earlier room in flight has been replayed*/
+        private Result result;
+
+        private Lease(List<Player> players, Bounds bounds){
+            this.players = players;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * the most one player could use and be given by clearing a room, or several rooms together. Every kill reaps the room's
+     * rewards, and a player can't make more kills than there are live monsters.
+     */
+    private static class Bounds {
+        /**ammunition, by TypeRegistry weapon id*/
+        private int[] mostUsed;
+        /**ammunition, by TypeRegistry weapon id*/
+        private int[] mostWon;
+        private BitSet weaponsWon;
+        private long mostHealthLost;
+        private long mostHealthWon;
+        /**enough health to pass every health check GameBot#canKill makes in the room*/
+        private long healthNeeded;
+
+        private Bounds(){
+            this.mostUsed = new int[TypeRegistry.getWeaponCount()];
+            this.mostWon = new int[TypeRegistry.getWeaponCount()];
+            this.weaponsWon = new BitSet();
+        }
+
+        private Bounds(Room room){
+            this();
+            int kills = 0;
+            long exposure = 0;
+            for(Monster monster : room.getLiveMonsters()){
+                int type = monster.getTypeId();
+                mostUsed[TypeRegistry.getWeaponNeededToKill(type)] += TypeRegistry.getAmmunitionCountNeededToKill(type);
+                exposure += TypeRegistry.getPlayerHealthLostPerExposure(type);
+                kills++;
+            }
+            for(Map.Entry<Weapon,Integer> ammo : room.getAmmoWonUponCompletion().entrySet()){
+                mostWon[ammo.getKey().ordinal()] = kills * Math.max(0,ammo.getValue());
+            }
+            for(Weapon weapon : room.getWeaponsWonUponCompletion()){
+                weaponsWon.set(weapon.ordinal());
+            }
+            int health = room.getHealthWonUponCompletion();
+            this.mostHealthLost = (long)kills * (room.getPlayerHealthLostPerEncounter() + Math.max(0,-health));
+            this.mostHealthWon = (long)kills * Math.max(0,health);
+            //each check asks for at most the encounter and every live monster's exposure, once per monster in the kill chain
+            this.healthNeeded = (kills + 1L) * (room.getPlayerHealthLostPerEncounter() + exposure);
+        }
+
+        private void add(Bounds other){
+            for(int weapon = 0; weapon < mostUsed.length; weapon++){
+                mostUsed[weapon] += other.mostUsed[weapon];
+                mostWon[weapon] += other.mostWon[weapon];
+            }
+            weaponsWon.or(other.weaponsWon);
+            mostHealthLost += other.mostHealthLost;
+            mostHealthWon += other.mostHealthWon;
+        }
+    }
+
+    private static class Result {
+        private int room;
+        /**each kill as the worker's room index of the monster followed by the lease position of the player*/
+        private int[] kills;
+        private String failure;
+        private IOException lost;
+
+        private Result(int room, int[] kills, String failure){
+            this.room = room;
+            this.kills = kills;
+            this.failure = failure;
+        }
+    }
+}
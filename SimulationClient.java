@@ -0,0 +1,177 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A blocking client for a SimulationServer running on this machine
+ *
+ * Usage: SimulationClient [--generate count] [--connections n] [--threads n] [--batch n] [--seed n]
+ * checks a SimulationServer over loopback: starts one in this process, pipelines the generated scenarios over several connections
+ * at once, and checks that every answer is the one GameBot gives when playing the scenario here, in the order the scenarios were sent.
+ * Then checks that a scenario whose protectors are cyclic, a request that is too long, and requests beyond the pending limit are
+ * answered with an ERROR without holding up the answers after them.
+ */
+public class SimulationClient implements AutoCloseable {
+    private Socket socket;
+    private Writer writer;
+    private BufferedReader reader;
+
+    /**
+     * connect to the simulation server listening on the given loopback port
+     * @param port
+     * @throws IOException if the connection can't be made
+     */
+    public SimulationClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(),port);
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),StandardCharsets.UTF_8));
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),8,6,3);
+        int count = Integer.parseInt(options.getOrDefault("generate","1000"));
+        int connections = Integer.parseInt(options.getOrDefault("connections","4"));
+        int threads = Integer.parseInt(options.getOrDefault("threads","4"));
+        int batch = Integer.parseInt(options.getOrDefault("batch","16"));
+        List<String> scenarios = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            scenarios.add(generator.next());
+        }
+        String cyclic = "ROOM\tcycle\t0\t\t\nMONSTER\tIMP\tIMP\nPLAYER\tp\t100\tFIST=10\n" + ScenarioCodec.END + "\n";
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        try(SimulationServer server = new SimulationServer(0,threads,batch)){
+            server.start();
+            List<Thread> checks = new ArrayList<>();
+            for(int c = 0; c < connections; c++){
+                //every connection sends its own share of the scenarios, with a cyclic one in the middle
+                List<String> share = new ArrayList<>();
+                for(int i = c; i < scenarios.size(); i += connections){
+                    share.add(scenarios.get(i));
+                }
+                share.add(share.size() / 2,cyclic);
+                Thread check = new Thread(() -> failures.addAll(check(server.getPort(),share,Map.of(cyclic,"ERROR\tjava.lang.StackOverflowError"),null)));
+                checks.add(check);
+                check.start();
+            }
+            for(Thread check : checks){
+                check.join();
+            }
+        }
+        String tooLong = "ROOM\t" + "x".repeat(10000) + "\t0\t\t\nMONSTER\tIMP\t\nPLAYER\tp\t100\tFIST=10\n" + ScenarioCodec.END + "\n";
+        try(SimulationServer server = new SimulationServer(0,1,batch,4096,SimulationServer.DEFAULT_MAX_PENDING_REQUESTS)){
+            server.start();
+            failures.addAll(check(server.getPort(),List.of(scenarios.get(0),tooLong,scenarios.get(1)),Map.of(tooLong,"ERROR\trequest longer than 4096 bytes"),null));
+        }
+        int[] rejected = new int[1];
+        try(SimulationServer server = new SimulationServer(0,1,1,SimulationServer.DEFAULT_MAX_REQUEST_BYTES,4)){
+            server.start();
+            failures.addAll(check(server.getPort(),scenarios.subList(0,Math.min(200,scenarios.size())),Map.of(),rejected));
+        }
+        for(String failure : failures.subList(0,Math.min(20,failures.size()))){
+            System.out.println(failure);
+        }
+        System.out.println(failures.size() + " failures over " + (scenarios.size() + connections + 3) + " requests; "
+                + rejected[0] + " of a flood of requests were rejected for the pending limit");
+        if(!failures.isEmpty() || rejected[0] == 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * send all the scenarios over one new connection without waiting for answers, and check the answers as they arrive
+     * @param errors the start of the ERROR expected as the answer to some of the scenarios; any other scenario is expected to be
+     * answered the way GameBot plays it here
+     * @param rejected counts the answers that are ERRORs for too many pending requests, which any scenario may then get, or null if none may
+     * @return a description of every answer that is wrong
+     */
+    private static List<String> check(int port, List<String> scenarios, Map<String,String> errors, int[] rejected){
+        List<String> failures = new ArrayList<>();
+        try(SimulationClient client = new SimulationClient(port)){
+            //an answer held up behind one that never comes fails the check rather than hanging it
+            client.socket.setSoTimeout(10000);
+            Thread sender = new Thread(() -> {
+                try{
+                    for(String scenario : scenarios){
+                        client.send(scenario);
+                    }
+                }catch(IOException e){
+                    //the answers will be missing
+                }
+            });
+            sender.start();
+            for(int i = 0; i < scenarios.size(); i++){
+                String scenario = scenarios.get(i);
+                String answer = String.join("\n",client.readAnswer()) + "\n" + ScenarioCodec.END + "\n";
+                String error = errors.get(scenario);
+                if(rejected != null && answer.startsWith("ERROR\tmore than ")){
+                    rejected[0]++;
+                }else if(error != null){
+                    if(!answer.startsWith(error)){
+                        failures.add("answer " + i + ": expected " + error + " but got " + answer);
+                    }
+                }else{
+                    GameBot bot = ScenarioCodec.decodeScenario(ScenarioCodec.readMessages(new BufferedReader(new StringReader(scenario))).get(0));
+                    String expected = ScenarioCodec.encodeResult(bot,bot.play());
+                    if(!answer.equals(expected)){
+                        failures.add("answer " + i + ": expected " + expected + " but got " + answer);
+                    }
+                }
+            }
+            sender.join();
+        }catch(IOException | InterruptedException e){
+            failures.add("connection failed: " + e);
+        }
+        return failures;
+    }
+
+    /**
+     * send a scenario to be played, without waiting for the answer. Answers are read with #readAnswer in the order scenarios were sent.
+     * @param scenario a scenario message, as made by ScenarioCodec#encodeScenario
+     * @throws IOException
+     */
+    public void send(String scenario) throws IOException {
+        writer.write(scenario);
+        writer.flush();
+    }
+
+    /**
+     * @return the lines of the next answer, without the closing END line
+     * @throws IOException
+     * @throws EOFException if the server closed the connection before answering
+     */
+    public List<String> readAnswer() throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while((line = reader.readLine()) != null){
+            if(line.equals(ScenarioCodec.END)){
+                return lines;
+            }
+            lines.add(line);
+        }
+        throw new EOFException();
+    }
+
+    /**
+     * play a scenario and wait for its outcome
+     * @param scenario a scenario message, as made by ScenarioCodec#encodeScenario
+     * @return the lines of the answer, without the closing END line
+     * @throws IOException
+     */
+    public List<String> play(String scenario) throws IOException {
+        send(scenario);
+        return readAnswer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,383 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the bot as a long-lived local service, so scenarios are played by a warm JVM instead of one launched per scenario.
+ * Clients connect over loopback and send scenarios in the ScenarioCodec format; each is played with GameBot#play and answered
+ * with its outcome. Any number of scenarios may be pipelined on one connection; answers come back in the order they were sent.
+ *
+ * One selector thread does all network I/O without blocking. Complete requests are handed to a batching thread that collects
+ * whatever has arrived, up to a batch size, and gives each batch to the worker pool as a single task.
+ *
+ * A connection can't make the server hold more than a bounded amount for it. A request longer than the most bytes a request may
+ * take is skipped up to its END line and answered with an ERROR, as is a request that arrives while the most requests a connection
+ * may have pending are already waiting for their answers to be written. A connection with twice that many pending isn't read from
+ * until some of its answers have been written, e.g. because the client isn't reading them.
+ *
+ * SimulationClient#main checks a server over loopback.
+ */
+public class SimulationServer implements AutoCloseable {
+    public static final int DEFAULT_MAX_REQUEST_BYTES = 1 << 24;
+    public static final int DEFAULT_MAX_PENDING_REQUESTS = 1024;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private BlockingQueue<Request> incoming;
+    private Queue<Connection> pendingWrites;
+    private ExecutorService workers;
+    private Thread selectorThread;
+    private Thread batcherThread;
+    private int maxBatchSize;
+    private int maxRequestBytes;
+    private int maxPendingRequests;
+    private volatile boolean running;
+
+    /**
+     * create a server with the default limits on requests
+     * @param port the loopback port to listen on, or 0 for any free port
+     * @param workerThreads the number of threads playing games
+     * @param maxBatchSize the most requests handed to a worker as one task
+     * @throws IOException if the server can't listen on the port
+     * @throws IllegalArgumentException if workerThreads or maxBatchSize is < 1
+     */
+    public SimulationServer(int port, int workerThreads, int maxBatchSize) throws IOException {
+        this(port,workerThreads,maxBatchSize,DEFAULT_MAX_REQUEST_BYTES,DEFAULT_MAX_PENDING_REQUESTS);
+    }
+
+    /**
+     * @param port the loopback port to listen on, or 0 for any free port
+     * @param workerThreads the number of threads playing games
+     * @param maxBatchSize the most requests handed to a worker as one task
+     * @param maxRequestBytes the most bytes a request may take, END line included, which also bounds its longest line
+     * @param maxPendingRequests the most requests of one connection that may wait to be played or to have their answers written
+     * @throws IOException if the server can't listen on the port
+     * @throws IllegalArgumentException if any of the numbers but the port is < 1
+     */
+    public SimulationServer(int port, int workerThreads, int maxBatchSize, int maxRequestBytes, int maxPendingRequests) throws IOException {
+        if(workerThreads < 1 || maxBatchSize < 1 || maxRequestBytes < 1 || maxPendingRequests < 1){
+            throw new IllegalArgumentException();
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxRequestBytes = maxRequestBytes;
+        this.maxPendingRequests = maxPendingRequests;
+        this.incoming = new LinkedBlockingQueue<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector,SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SimulationServer server = new SimulationServer(port,threads,64);
+        server.start();
+        System.out.println("Simulation server listening on port " + server.getPort());
+    }
+
+    /**
+     * start accepting connections and playing scenarios
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized void start(){
+        if(selectorThread != null){
+            throw new IllegalStateException();
+        }
+        running = true;
+        selectorThread = new Thread(this::selectLoop,"simulation-selector");
+        batcherThread = new Thread(this::batchLoop,"simulation-batcher");
+        selectorThread.start();
+        batcherThread.start();
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort(){
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * stop the server, closing every connection. Requests not yet answered are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if(batcherThread != null){
+            batcherThread.interrupt();
+        }
+        workers.shutdownNow();
+        try{
+            if(selectorThread != null){
+                selectorThread.join();
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        for(SelectionKey key : selector.keys()){
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void selectLoop(){
+        try{
+            while(running){
+                selector.select();
+                Connection ready;
+                while((ready = pendingWrites.poll()) != null){
+                    if(ready.key.isValid()){
+                        ready.key.interestOps(ready.key.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try{
+                        if(key.isAcceptable()){
+                            accept();
+                        }else{
+                            if(key.isReadable()){
+                                ((Connection)key.attachment()).read();
+                            }
+                            if(key.isValid() && key.isWritable()){
+                                ((Connection)key.attachment()).write();
+                            }
+                        }
+                    }catch(IOException | CancelledKeyException e){
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        }catch(IOException | ClosedSelectorException e){
+            running = false;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if(channel == null){
+            return;
+        }
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector,SelectionKey.OP_READ);
+        key.attach(new Connection(channel,key));
+    }
+
+    private void batchLoop(){
+        try{
+            while(running){
+                List<Request> batch = new ArrayList<>(maxBatchSize);
+                batch.add(incoming.take());
+                incoming.drainTo(batch,maxBatchSize - 1);
+                workers.execute(() -> {
+                    int answered = 0;
+                    try{
+                        for(Request request : batch){
+                            request.connection.complete(request.sequence,play(request.lines));
+                            answered++;
+                        }
+                    }finally{
+                        //answers are released in order, so a request left unanswered by an Error would hold up every later answer
+                        for(Request request : batch.subList(answered,batch.size())){
+                            request.connection.complete(request.sequence,ScenarioCodec.encodeError("the server failed while playing this request"));
+                        }
+                    }
+                });
+            }
+        }catch(InterruptedException | RejectedExecutionException e){
+            //the server is closing
+        }
+    }
+
+    /**
+     * @param lines a scenario message, without the closing END line
+     * @return the answer to send back for it, which is an ERROR if the scenario is invalid, or its protectors are cyclic
+     * and so overflow the stack when GameBot looks for them
+     */
+    private static String play(List<String> lines){
+        try{
+            GameBot bot = ScenarioCodec.decodeScenario(lines);
+            return ScenarioCodec.encodeResult(bot,bot.play());
+        }catch(RuntimeException | StackOverflowError e){
+            return ScenarioCodec.encodeError(e.toString());
+        }
+    }
+
+    private static class Request {
+        private Connection connection;
+        private long sequence;
+        private List<String> lines;
+
+        private Request(Connection connection, long sequence, List<String> lines){
+            this.connection = connection;
+            this.sequence = sequence;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * The state of one client connection: the bytes of the line being read, the lines of the request being read,
+     * and answers waiting to be written. Answers are written in request order even if workers finish them out of order.
+     */
+    private class Connection {
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer;
+        private byte[] partialLine;
+        private int partialLength;
+        /**the line being read is too long to be kept; its bytes are dropped up to the end of the line*/
+        private boolean partialLineDropped;
+        private List<String> requestLines;
+        /**the bytes of the request being read so far*/
+        private long requestBytes;
+        /**why the request being read will be answered with an ERROR rather than played, or null if it won't be*/
+        private String rejection;
+        private long nextRequestSequence;
+        private long nextAnswerSequence;
+        /**the answers fully written to the channel; only the selector thread uses it*/
+        private long answersWritten;
+        private Map<Long,String> finishedAnswers;
+        private Queue<ByteBuffer> outbound;
+
+        private Connection(SocketChannel channel, SelectionKey key){
+            this.channel = channel;
+            this.key = key;
+            this.readBuffer = ByteBuffer.allocate(8192);
+            this.partialLine = new byte[256];
+            this.requestLines = new ArrayList<>();
+            this.finishedAnswers = new HashMap<>();
+            this.outbound = new ConcurrentLinkedQueue<>();
+        }
+
+        private void read() throws IOException {
+            int read = channel.read(readBuffer);
+            if(read < 0){
+                key.cancel();
+                channel.close();
+                return;
+            }
+            readBuffer.flip();
+            while(readBuffer.hasRemaining()){
+                byte b = readBuffer.get();
+                if(b != '\n'){
+                    if(++requestBytes > maxRequestBytes && rejection == null){
+                        reject("request longer than " + maxRequestBytes + " bytes");
+                    }
+                    //once the request is rejected only its END line matters, so longer lines are dropped
+                    if(partialLineDropped || (rejection != null && partialLength > ScenarioCodec.END.length())){
+                        partialLineDropped = true;
+                        partialLength = 0;
+                        continue;
+                    }
+                    if(partialLength == partialLine.length){
+                        partialLine = Arrays.copyOf(partialLine,partialLength * 2);
+                    }
+                    partialLine[partialLength++] = b;
+                    continue;
+                }
+                requestBytes++;
+                String line = partialLineDropped ? null : new String(partialLine,0,partialLength,StandardCharsets.UTF_8);
+                partialLength = 0;
+                partialLineDropped = false;
+                if(line != null && line.endsWith("\r")){
+                    line = line.substring(0,line.length() - 1);
+                }
+                if(ScenarioCodec.END.equals(line)){
+                    endRequest();
+                }else if(rejection == null){
+                    requestLines.add(line);
+                }
+            }
+            readBuffer.clear();
+            if(getPendingRequests() >= 2L * maxPendingRequests){
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * stop keeping the lines of the request being read, which will be answered with an ERROR holding the given reason
+         */
+        private void reject(String reason){
+            rejection = reason;
+            requestLines = new ArrayList<>();
+            if(partialLength > ScenarioCodec.END.length() + 1){
+                partialLineDropped = true;
+                partialLength = 0;
+            }
+            if(partialLine.length > 256){
+                partialLine = Arrays.copyOf(partialLine,256);
+            }
+        }
+
+        /**
+         * hand the request just read to be played, or answer it with an ERROR if it was rejected or too many requests are pending
+         */
+        private void endRequest(){
+            long sequence = nextRequestSequence++;
+            if(rejection == null && getPendingRequests() > maxPendingRequests){
+                rejection = "more than " + maxPendingRequests + " requests pending";
+            }
+            if(rejection == null){
+                incoming.add(new Request(this,sequence,requestLines));
+            }else{
+                complete(sequence,ScenarioCodec.encodeError(rejection));
+            }
+            requestLines = new ArrayList<>();
+            requestBytes = 0;
+            rejection = null;
+        }
+
+        /**
+         * @return the requests read whose answers aren't yet fully written
+         */
+        private long getPendingRequests(){
+            return nextRequestSequence - answersWritten;
+        }
+
+        /**
+         * called by a worker when the answer to the request with the given sequence number is ready
+         */
+        private synchronized void complete(long sequence, String answer){
+            finishedAnswers.put(sequence,answer);
+            String next;
+            while((next = finishedAnswers.remove(nextAnswerSequence)) != null){
+                outbound.add(ByteBuffer.wrap(next.getBytes(StandardCharsets.UTF_8)));
+                nextAnswerSequence++;
+            }
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        private void write() throws IOException {
+            ByteBuffer buffer;
+            while((buffer = outbound.peek()) != null){
+                channel.write(buffer);
+                if(buffer.hasRemaining()){
+                    break;
+                }
+                outbound.poll();
+                answersWritten++;
+            }
+            int interest = outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if(getPendingRequests() < 2L * maxPendingRequests){
+                interest |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interest);
+        }
+    }
+}
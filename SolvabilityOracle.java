@@ -0,0 +1,305 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Judges whether GameBot could complete a game from totals alone, without playing it, in time linear in the number of rooms
+ * and players (and the number of monster types and weapons), so hopeless worlds can be turned away before they are played.
+ *
+ * These are necessary conditions, each checked against the most the players could ever have:
+ * - every weapon needed by a live monster is held by a live player, or won in a room that one of the reachable weapons opens
+ * - per weapon, the ammunition needed to kill every live monster is no more than the players hold, plus 5 rounds per player when
+ *   the weapon is won, plus the ammunition won in every reachable room for every kill made there
+ * - the health lost to exposure, in the cheapest order of kills in every room, is no more than the players' combined health
+ *   plus the health won for every kill in the reachable rooms
+ * - some player could have the health to enter each room, which the first kill there needs (see GameBot#canKill)
+ * Rewards are reaped on every kill (see GameBot#reapCompletionRewards), so a room can reward at most as many times as it has live monsters.
+ *
+ * If one of them fails, the game is IMPOSSIBLE. If they all hold, and the players start with every weapon needed and the health
+ * for the cheapest order of kills, it is LIKELY; otherwise it is UNKNOWN. Neither of these is a promise: the ammunition and
+ * health may be spread over the players in a way that leaves every one of them short, and protectors may force a costlier order of kills.
+ *
+ * Usage: SolvabilityOracle [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * compares the oracle's verdicts with what GameBot makes of the same generated scenarios, and exits with status 1 if GameBot
+ * completed a game judged IMPOSSIBLE.
+ */
+public class SolvabilityOracle {
+    /**
+     * What the oracle makes of a game
+     */
+    public enum Verdict {
+        /**a necessary condition fails, so GameBot can't complete the game*/
+        IMPOSSIBLE,
+        /**the necessary conditions hold, and the players start with every weapon and the health needed*/
+        LIKELY,
+        /**the necessary conditions hold, but only with the help of rewards*/
+        UNKNOWN;
+    }
+
+    /**
+     * A verdict with the reason for it
+     */
+    public static class Result {
+        private Verdict verdict;
+        private String reason;
+
+        private Result(Verdict verdict, String reason){
+            this.verdict = verdict;
+            this.reason = reason;
+        }
+
+        public Verdict getVerdict(){
+            return this.verdict;
+        }
+
+        /**
+         * @return the condition that failed, or why the game isn't LIKELY, or null if it is
+         */
+        public String getReason(){
+            return this.reason;
+        }
+
+        @Override
+        public String toString(){
+            return reason == null ? verdict.toString() : verdict + ": " + reason;
+        }
+    }
+
+    /**
+     * @param rooms the rooms of the game, in their current state
+     * @param players the players of the game, in their current state
+     * @return the verdict on whether GameBot#play could complete every room
+     */
+    public static Result analyze(Collection<Room> rooms, Collection<Player> players){
+        int weapons = TypeRegistry.getWeaponCount();
+        long[] heldAmmo = new long[weapons];
+        boolean[] reachable = new boolean[weapons];
+        int livePlayers = 0;
+        long startingHealth = 0;
+        long mostStartingHealth = 0;
+        for(Player player : players){
+            if(player.isDead()){
+                continue;
+            }
+            livePlayers++;
+            startingHealth += player.getHealth();
+            mostStartingHealth = Math.max(mostStartingHealth,player.getHealth());
+            for(int weapon = 0; weapon < weapons; weapon++){
+                if(player.hasWeapon(weapon)){
+                    reachable[weapon] = true;
+                    heldAmmo[weapon] = saturatedAdd(heldAmmo[weapon],player.getAmmunitionRoundsForWeapon(weapon));
+                }
+            }
+        }
+        //the rooms with live monsters, what each of them needs, and the rooms each weapon opens
+        List<Room> open = new ArrayList<>();
+        List<int[]> liveCounts = new ArrayList<>();
+        List<List<Integer>> roomsNeeding = new ArrayList<>();
+        for(int weapon = 0; weapon < weapons; weapon++){
+            roomsNeeding.add(new ArrayList<>());
+        }
+        long[] ammoNeeded = new long[weapons];
+        long exposure = 0;
+        int[] mostExposingFirst = mostExposingFirst();
+        for(Room room : rooms){
+            int[] counts = room.getLiveMonsterCountByType();
+            int index = open.size();
+            boolean live = false;
+            for(int type = 0; type < counts.length; type++){
+                if(counts[type] > 0){
+                    live = true;
+                    int weapon = TypeRegistry.getWeaponNeededToKill(type);
+                    ammoNeeded[weapon] = saturatedAdd(ammoNeeded[weapon],saturatedMultiply(counts[type],TypeRegistry.getAmmunitionCountNeededToKill(type)));
+                    List<Integer> needing = roomsNeeding.get(weapon);
+                    if(needing.isEmpty() || needing.get(needing.size() - 1) != index){
+                        needing.add(index);
+                    }
+                }
+            }
+            if(live){
+                open.add(room);
+                liveCounts.add(counts);
+                exposure = saturatedAdd(exposure,leastExposure(counts,mostExposingFirst));
+            }
+        }
+        if(open.isEmpty()){
+            return new Result(Verdict.LIKELY,null);
+        }
+        if(livePlayers == 0){
+            return new Result(Verdict.IMPOSSIBLE,"no player is alive");
+        }
+        //a room can reward once a weapon needed for one of its monsters is reachable, and its rewards may make more weapons reachable
+        boolean[] rewarding = new boolean[open.size()];
+        boolean[] won = new boolean[weapons];
+        Deque<Integer> toOpen = new ArrayDeque<>();
+        for(int weapon = 0; weapon < weapons; weapon++){
+            if(reachable[weapon]){
+                toOpen.push(weapon);
+            }
+        }
+        while(!toOpen.isEmpty()){
+            for(int index : roomsNeeding.get(toOpen.pop())){
+                if(rewarding[index]){
+                    continue;
+                }
+                rewarding[index] = true;
+                for(Weapon weapon : open.get(index).getWeaponsWonUponCompletion()){
+                    won[weapon.ordinal()] = true;
+                    if(!reachable[weapon.ordinal()]){
+                        reachable[weapon.ordinal()] = true;
+                        toOpen.push(weapon.ordinal());
+                    }
+                }
+            }
+        }
+        long[] ammoAvailable = heldAmmo.clone();
+        long healthAvailable = startingHealth;
+        long healthWon = 0;
+        for(int weapon = 0; weapon < weapons; weapon++){
+            if(won[weapon]){
+                ammoAvailable[weapon] = saturatedAdd(ammoAvailable[weapon],saturatedMultiply(5,livePlayers));
+            }
+        }
+        for(int index = 0; index < open.size(); index++){
+            if(!rewarding[index]){
+                continue;
+            }
+            Room room = open.get(index);
+            long kills = 0;
+            for(int count : liveCounts.get(index)){
+                kills += count;
+            }
+            for(Map.Entry<Weapon,Integer> ammo : room.getAmmoWonUponCompletion().entrySet()){
+                if(ammo.getValue() > 0){
+                    int weapon = ammo.getKey().ordinal();
+                    ammoAvailable[weapon] = saturatedAdd(ammoAvailable[weapon],saturatedMultiply(kills,ammo.getValue()));
+                }
+            }
+            healthWon = saturatedAdd(healthWon,saturatedMultiply(kills,Math.max(0,room.getHealthWonUponCompletion())));
+        }
+        healthAvailable = saturatedAdd(healthAvailable,healthWon);
+        for(int weapon = 0; weapon < weapons; weapon++){
+            if(ammoNeeded[weapon] == 0){
+                continue;
+            }
+            if(!reachable[weapon]){
+                return new Result(Verdict.IMPOSSIBLE,"no player can get a " + TypeRegistry.getWeaponName(weapon));
+            }
+            if(ammoNeeded[weapon] > ammoAvailable[weapon]){
+                return new Result(Verdict.IMPOSSIBLE,ammoNeeded[weapon] + " rounds of " + TypeRegistry.getWeaponName(weapon)
+                        + " are needed, but at most " + ammoAvailable[weapon] + " can be had");
+            }
+        }
+        if(exposure > healthAvailable){
+            return new Result(Verdict.IMPOSSIBLE,"at least " + exposure + " health is lost to exposure, but at most " + healthAvailable + " can be had");
+        }
+        long mostHealth = saturatedAdd(mostStartingHealth,healthWon);
+        for(Room room : open){
+            if(room.getPlayerHealthLostPerEncounter() > mostHealth){
+                return new Result(Verdict.IMPOSSIBLE,"entering " + room.getName() + " costs " + room.getPlayerHealthLostPerEncounter()
+                        + " health, but no player can have more than " + mostHealth);
+            }
+        }
+        for(int weapon = 0; weapon < weapons; weapon++){
+            if(ammoNeeded[weapon] > 0 && heldAmmo[weapon] == 0){
+                return new Result(Verdict.UNKNOWN,"no player starts with a " + TypeRegistry.getWeaponName(weapon));
+            }
+        }
+        if(exposure > startingHealth){
+            return new Result(Verdict.UNKNOWN,"the players start with " + startingHealth + " of the at least " + exposure + " health needed");
+        }
+        return new Result(Verdict.LIKELY,null);
+    }
+
+    /**
+     * @return the TypeRegistry ids of the monster types, from the most health lost per exposure to the least
+     */
+    private static int[] mostExposingFirst(){
+        Integer[] types = new Integer[TypeRegistry.getMonsterTypeCount()];
+        for(int type = 0; type < types.length; type++){
+            types[type] = type;
+        }
+        Arrays.sort(types,Comparator.comparingInt(type -> -TypeRegistry.getPlayerHealthLostPerExposure(type)));
+        int[] order = new int[types.length];
+        for(int i = 0; i < types.length; i++){
+            order[i] = types[i];
+        }
+        return order;
+    }
+
+    /**
+     * Every kill costs the killer the exposure of every monster still live in the room, so a monster's exposure is paid once for
+     * each kill up to and including its own. Killing the most exposing monsters first is the cheapest order, if protectors allow it.
+     * @param counts how many monsters of each type are live in a room, by TypeRegistry id
+     * @param mostExposingFirst
+     * @return the least health that killing all of them can cost
+     */
+    private static long leastExposure(int[] counts, int[] mostExposingFirst){
+        long cost = 0;
+        long killed = 0;
+        for(int type : mostExposingFirst){
+            long count = counts[type];
+            //the monsters of this type are kills killed+1 to killed+count
+            long timesPaid = saturatedAdd(saturatedMultiply(count,killed + 1),saturatedMultiply(count,count - 1) / 2);
+            cost = saturatedAdd(cost,saturatedMultiply(timesPaid,TypeRegistry.getPlayerHealthLostPerExposure(type)));
+            killed += count;
+        }
+        return cost;
+    }
+
+    private static long saturatedAdd(long a, long b){
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b){
+        long high = Math.multiplyHigh(a,b);
+        long product = a * b;
+        return high != 0 || product < 0 ? Long.MAX_VALUE : product;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        Map<Verdict,int[]> outcomes = new EnumMap<>(Verdict.class);
+        for(Verdict verdict : Verdict.values()){
+            outcomes.put(verdict,new int[2]);
+        }
+        long oracleNanos = 0;
+        long playNanos = 0;
+        for(int i = 0; i < count; i++){
+            List<List<String>> messages;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                messages = ScenarioCodec.readMessages(reader);
+            }
+            for(List<String> lines : messages){
+                ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+                long start = System.nanoTime();
+                Verdict verdict = analyze(scenario.getRooms(),scenario.getPlayers()).getVerdict();
+                oracleNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                boolean completed = new GameBot(scenario.getRooms(),scenario.getPlayers()).play();
+                playNanos += System.nanoTime() - start;
+                outcomes.get(verdict)[completed ? 0 : 1]++;
+            }
+        }
+        System.out.println(String.format(Locale.ROOT,"%-12s %10s %10s","verdict","completed","stuck"));
+        for(Verdict verdict : Verdict.values()){
+            System.out.println(String.format(Locale.ROOT,"%-12s %10d %10d",verdict,outcomes.get(verdict)[0],outcomes.get(verdict)[1]));
+        }
+        System.out.println(String.format(Locale.ROOT,"oracle %.1f us/game, play %.1f us/game",oracleNanos / 1e3 / count,playNanos / 1e3 / count));
+        if(outcomes.get(Verdict.IMPOSSIBLE)[0] > 0){
+            System.out.println("WRONG: games judged IMPOSSIBLE were completed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * An undo log for speculative moves. While a trail is attached (see GameBot#setTrail), every change to a monster, room or player
+ * records how to undo itself, so a search can #mark() a point, try a move, and #rollbackTo(int) the mark in time proportional
+ * to the number of changes made, rather than deep-copying the whole world for every branch.
+ *
+ * Usage: Trail [--generate count] [--rooms n] [--monsters n] [--players n] [--seed n]
+ * plays generated scenarios with a trail attached, checks that asking every player whether it can kill every monster records
+ * nothing, that rolling the whole game back restores every monster, room and player, and that playing again ends the same way.
+ */
+public class Trail {
+    private List<Runnable> entries;
+    private boolean rollingBack;
+
+    public Trail(){
+        this.entries = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            options.put(args[i].substring(2),args[i + 1]);
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(Long.parseLong(options.getOrDefault("seed","42")),
+                Integer.parseInt(options.getOrDefault("rooms","20")),Integer.parseInt(options.getOrDefault("monsters","8")),
+                Integer.parseInt(options.getOrDefault("players","3")));
+        int count = Integer.parseInt(options.getOrDefault("generate","500"));
+        int scenarios = 0;
+        int failures = 0;
+        long entries = 0;
+        for(int i = 0; i < count; i++){
+            List<List<String>> messages;
+            try(BufferedReader reader = new BufferedReader(new StringReader(generator.next()))){
+                messages = ScenarioCodec.readMessages(reader);
+            }
+            for(List<String> lines : messages){
+                ScenarioCodec.Scenario scenario = ScenarioCodec.decodeWorld(lines);
+                GameBot bot = new GameBot(scenario.getRooms(),scenario.getPlayers());
+                Trail trail = new Trail();
+                bot.setTrail(trail);
+                String before = describe(bot,scenario.getPlayers());
+                for(Room room : scenario.getRooms()){
+                    for(Monster monster : room.getLiveMonsters()){
+                        for(Player player : scenario.getPlayers()){
+                            GameBot.canKill(player,monster,room);
+                        }
+                    }
+                }
+                String failure = null;
+                if(trail.size() != 0){
+                    failure = "canKill recorded " + trail.size() + " entries";
+                }
+                int mark = trail.mark();
+                boolean completed = bot.play();
+                String after = describe(bot,scenario.getPlayers());
+                entries += trail.size();
+                trail.rollbackTo(mark);
+                if(failure == null && !describe(bot,scenario.getPlayers()).equals(before)){
+                    failure = "rolling back didn't restore the game";
+                }
+                if(failure == null && (bot.play() != completed || !describe(bot,scenario.getPlayers()).equals(after))){
+                    failure = "playing again after rolling back ended differently";
+                }
+                scenarios++;
+                if(failure != null){
+                    failures++;
+                    System.out.println("scenario " + (scenarios - 1) + ": " + failure);
+                }
+            }
+        }
+        System.out.println(failures + " failures over " + scenarios + " scenarios, " + entries + " entries rolled back");
+        if(failures > 0){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return every monster's liveness and health, every room's aggregates, every player's health, weapons and ammunition,
+     * and the rooms the bot has noted as completed
+     */
+    private static String describe(GameBot bot, Collection<Player> players){
+        StringBuilder state = new StringBuilder();
+        for(Room room : bot.getAllRooms()){
+            state.append(room.getName()).append(" danger=").append(room.getDangerLevel()).append(" exposure=")
+                    .append(room.getPlayerHealthLostPerEncounter()).append(" live=").append(room.getLiveMonsters().size());
+            for(Monster monster : room.getMonsters()){
+                state.append(' ').append(monster.isDead() ? "dead" : monster.getRemainingHealth()).append(room.isLive(monster) ? "" : "/marked");
+            }
+            state.append('\n');
+        }
+        for(Player player : players){
+            state.append(player.getName()).append(" health=").append(player.getHealth());
+            for(int weapon = 0; weapon < TypeRegistry.getWeaponCount(); weapon++){
+                if(player.hasWeapon(weapon)){
+                    state.append(' ').append(TypeRegistry.getWeaponName(weapon)).append('=').append(player.getAmmunitionRoundsForWeapon(weapon));
+                }
+            }
+            state.append(" without=").append(new TreeMap<>(player.getAmmunitionWithoutWeapon())).append('\n');
+        }
+        return state.append("completed=").append(bot.getCompletedRooms().size()).toString();
+    }
+
+    /**
+     * @return a mark for the current point of the trail, to later roll back to
+     */
+    public int mark(){
+        return entries.size();
+    }
+
+    /**
+     * undo every change recorded since the given mark, most recent first
+     * @param mark
+     * @throws IllegalArgumentException if the mark is negative or past the end of the trail, e.g. because it was already rolled back
+     */
+    public void rollbackTo(int mark){
+        if(mark < 0 || mark > entries.size()){
+            throw new IllegalArgumentException();
+        }
+        rollingBack = true;
+        try{
+            for(int i = entries.size() - 1; i >= mark; i--){
+                entries.remove(i).run();
+            }
+        }finally{
+            rollingBack = false;
+        }
+    }
+
+    /**
+     * forget every recorded change, keeping the current state. Any earlier marks are no longer valid.
+     */
+    public void clear(){
+        entries.clear();
+    }
+
+    /**
+     * @return the number of changes recorded
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * record how to undo a change that was just made. Changes made while rolling back are not recorded.
+     * @param undo
+     */
+    protected void record(Runnable undo){
+        if(!rollingBack){
+            entries.add(undo);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package edu.yu.cs.intro.doomGame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Every weapon and monster type the game knows, each with a dense int id, and the properties of each monster type in flat
+ * int tables indexed by that id. The built-in Weapon and MonsterType constants are registered first, so their ids are their
+ * ordinals; more weapons and monster types can be defined at runtime, e.g. from a configuration file read with #load.
+ * GameBot, Room, Monster and Player work with ids and read these tables, so defined types play exactly like built-in ones.
+ *
+ * A weapon's id is also its strength: a monster can be attacked with the weapon it needs or any weapon with a greater id,
+ * as with Weapon ordinals. A weapon can't be removed or redefined once registered, and neither can a monster type.
+ * Define types before creating the monsters and players that use them; a room only counts the types registered when it was created.
+ *
+ * The configuration format is one record per line, of tab-separated fields, as in ScenarioCodec. Blank lines and lines starting
+ * with # are ignored.
+ * WEAPON, name
+ * MONSTER, name, weapon needed to kill it, ammunition needed to kill it, health lost per exposure, protector type (may be empty)
+ */
+public class TypeRegistry {
+    /**at most 64 weapons, so a set of weapons fits in the bits of a long, as in CapabilityVector*/
+    public static final int MAX_WEAPONS = 64;
+    public static final int NONE = -1;
+
+    private static final MonsterType[] BUILT_IN_TYPES = MonsterType.values();
+    private static final Weapon[] BUILT_IN_WEAPONS = Weapon.values();
+    private static volatile Tables tables = builtIn();
+
+    /**
+     * One consistent version of the registry. Defining a type publishes a new version, so readers never see a half-defined type.
+     */
+    private static class Tables {
+        private String[] weaponNames;
+        private String[] monsterTypeNames;
+        private int[] weaponNeededToKill;
+        private int[] ammunitionCountNeededToKill;
+        private int[] playerHealthLostPerExposure;
+        private int[] protectedBy;
+        /**each type's position in the order monsters must be killed in*/
+        private int[] killOrder;
+
+        private Tables(String[] weaponNames, String[] monsterTypeNames, int[] weaponNeededToKill, int[] ammunitionCountNeededToKill,
+                       int[] playerHealthLostPerExposure, int[] protectedBy){
+            this.weaponNames = weaponNames;
+            this.monsterTypeNames = monsterTypeNames;
+            this.weaponNeededToKill = weaponNeededToKill;
+            this.ammunitionCountNeededToKill = ammunitionCountNeededToKill;
+            this.playerHealthLostPerExposure = playerHealthLostPerExposure;
+            this.protectedBy = protectedBy;
+            this.killOrder = killOrder(protectedBy);
+        }
+    }
+
+    private static Tables builtIn(){
+        MonsterType[] types = MonsterType.values();
+        String[] weaponNames = new String[Weapon.values().length];
+        for(Weapon weapon : Weapon.values()){
+            weaponNames[weapon.ordinal()] = weapon.name();
+        }
+        String[] names = new String[types.length];
+        int[] weaponNeeded = new int[types.length];
+        int[] ammoNeeded = new int[types.length];
+        int[] exposure = new int[types.length];
+        int[] protectedBy = new int[types.length];
+        for(MonsterType type : types){
+            names[type.ordinal()] = type.name();
+            weaponNeeded[type.ordinal()] = type.weaponNeededToKill.ordinal();
+            ammoNeeded[type.ordinal()] = type.ammunitionCountNeededToKill;
+            exposure[type.ordinal()] = type.playerHealthLostPerExposure;
+            protectedBy[type.ordinal()] = type.protectedByName == null ? NONE : MonsterType.valueOf(type.protectedByName).ordinal();
+        }
+        return new Tables(weaponNames,names,weaponNeeded,ammoNeeded,exposure,protectedBy);
+    }
+
+    /**
+     * Types are sorted by how many protectors deep they are, then by id, so every type comes after the type that protects it.
+     * @param protectedBy
+     * @return the position of each type in that order, by id
+     */
+    private static int[] killOrder(int[] protectedBy){
+        int count = protectedBy.length;
+        int[] depth = new int[count];
+        for(int type = 0; type < count; type++){
+            //a cycle of protectors would have no end, so stop after every type has been passed
+            for(int protector = protectedBy[type]; protector != NONE && depth[type] < count; protector = protectedBy[protector]){
+                depth[type]++;
+            }
+        }
+        Integer[] sorted = new Integer[count];
+        for(int i = 0; i < count; i++){
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted,Comparator.<Integer>comparingInt(t -> depth[t]).thenComparingInt(t -> t));
+        int[] order = new int[count];
+        for(int position = 0; position < count; position++){
+            order[sorted[position]] = position;
+        }
+        return order;
+    }
+
+    /**
+     * register a new weapon, stronger than every weapon registered so far
+     * @param name
+     * @return the weapon's id
+     * @throws IllegalArgumentException if the name is null, empty or already registered, or MAX_WEAPONS are already registered
+     */
+    public static synchronized int defineWeapon(String name){
+        Tables current = tables;
+        if(name == null || name.isEmpty() || indexOf(current.weaponNames,name) != NONE || current.weaponNames.length == MAX_WEAPONS){
+            throw new IllegalArgumentException("can't define weapon " + name);
+        }
+        String[] weaponNames = Arrays.copyOf(current.weaponNames,current.weaponNames.length + 1);
+        weaponNames[current.weaponNames.length] = name;
+        tables = new Tables(weaponNames,current.monsterTypeNames,current.weaponNeededToKill,current.ammunitionCountNeededToKill,
+                current.playerHealthLostPerExposure,current.protectedBy);
+        return current.weaponNames.length;
+    }
+
+    /**
+     * register a new monster type
+     * @param name
+     * @param weaponNeededToKill the id of the weapon needed to kill monsters of this type
+     * @param ammunitionCountNeededToKill how many rounds of that weapon it takes
+     * @param playerHealthLostPerExposure how much health a player loses when in the same room as a monster of this type
+     * @param protectedBy the id of the type that protects monsters of this type, or NONE
+     * @return the monster type's id
+     * @throws IllegalArgumentException if the name is null, empty or already registered, either id is unknown, the ammunition is < 1 or the health lost is negative
+     */
+    public static synchronized int defineMonsterType(String name, int weaponNeededToKill, int ammunitionCountNeededToKill, int playerHealthLostPerExposure, int protectedBy){
+        Tables current = tables;
+        int id = current.monsterTypeNames.length;
+        if(name == null || name.isEmpty() || indexOf(current.monsterTypeNames,name) != NONE
+                || weaponNeededToKill < 0 || weaponNeededToKill >= current.weaponNames.length
+                || ammunitionCountNeededToKill < 1 || playerHealthLostPerExposure < 0 || protectedBy < NONE || protectedBy >= id){
+            throw new IllegalArgumentException("can't define monster type " + name);
+        }
+        String[] names = Arrays.copyOf(current.monsterTypeNames,id + 1);
+        names[id] = name;
+        int[] weaponNeeded = Arrays.copyOf(current.weaponNeededToKill,id + 1);
+        weaponNeeded[id] = weaponNeededToKill;
+        int[] ammoNeeded = Arrays.copyOf(current.ammunitionCountNeededToKill,id + 1);
+        ammoNeeded[id] = ammunitionCountNeededToKill;
+        int[] exposure = Arrays.copyOf(current.playerHealthLostPerExposure,id + 1);
+        exposure[id] = playerHealthLostPerExposure;
+        int[] protectors = Arrays.copyOf(current.protectedBy,id + 1);
+        protectors[id] = protectedBy;
+        tables = new Tables(current.weaponNames,names,weaponNeeded,ammoNeeded,exposure,protectors);
+        return id;
+    }
+
+    /**
+     * define every weapon and monster type in the given configuration. Types may refer to any type defined before them,
+     * in the registry or earlier in the configuration.
+     * @param reader
+     * @throws IOException
+     * @throws IllegalArgumentException if a record is malformed or a type can't be defined; the records before it stay defined
+     */
+    public static void load(BufferedReader reader) throws IOException {
+        String line;
+        while((line = reader.readLine()) != null){
+            if(line.isBlank() || line.startsWith("#")){
+                continue;
+            }
+            String[] fields = line.split("\t",-1);
+            try{
+                switch(fields[0]){
+                    case "WEAPON":
+                        defineWeapon(fields[1]);
+                        break;
+                    case "MONSTER":
+                        defineMonsterType(fields[1],getWeaponId(fields[2]),Integer.parseInt(fields[3]),Integer.parseInt(fields[4]),
+                                fields.length < 6 || fields[5].isEmpty() ? NONE : getMonsterTypeId(fields[5]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown record " + fields[0]);
+                }
+            }catch(ArrayIndexOutOfBoundsException e){
+                throw new IllegalArgumentException("record is missing fields: " + line,e);
+            }
+        }
+    }
+
+    private static int indexOf(String[] names, String name){
+        for(int i = 0; i < names.length; i++){
+            if(names[i].equals(name)){
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    public static int getWeaponCount(){
+        return tables.weaponNames.length;
+    }
+
+    public static int getMonsterTypeCount(){
+        return tables.monsterTypeNames.length;
+    }
+
+    /**
+     * @param name
+     * @return the id of the weapon with the given name
+     * @throws IllegalArgumentException if there is no such weapon
+     */
+    public static int getWeaponId(String name){
+        int id = indexOf(tables.weaponNames,name);
+        if(id == NONE){
+            throw new IllegalArgumentException("no weapon " + name);
+        }
+        return id;
+    }
+
+    /**
+     * @param name
+     * @return the id of the monster type with the given name
+     * @throws IllegalArgumentException if there is no such monster type
+     */
+    public static int getMonsterTypeId(String name){
+        int id = indexOf(tables.monsterTypeNames,name);
+        if(id == NONE){
+            throw new IllegalArgumentException("no monster type " + name);
+        }
+        return id;
+    }
+
+    public static String getWeaponName(int weapon){
+        return tables.weaponNames[weapon];
+    }
+
+    public static String getMonsterTypeName(int type){
+        return tables.monsterTypeNames[type];
+    }
+
+    /**
+     * @see MonsterType#weaponNeededToKill
+     */
+    public static int getWeaponNeededToKill(int type){
+        return tables.weaponNeededToKill[type];
+    }
+
+    /**
+     * @see MonsterType#ammunitionCountNeededToKill
+     */
+    public static int getAmmunitionCountNeededToKill(int type){
+        return tables.ammunitionCountNeededToKill[type];
+    }
+
+    /**
+     * @see MonsterType#playerHealthLostPerExposure
+     */
+    public static int getPlayerHealthLostPerExposure(int type){
+        return tables.playerHealthLostPerExposure[type];
+    }
+
+    /**
+     * @param type
+     * @return the id of the type that protects monsters of the given type, or NONE
+     * @see MonsterType#getProtectedBy()
+     */
+    public static int getProtectedBy(int type){
+        return tables.protectedBy[type];
+    }
+
+    /**
+     * @param type
+     * @return the type's position in the order monsters are killed in: every type comes after the type that protects it
+     * @see Monster#compareTo(Monster)
+     */
+    public static int getKillOrder(int type){
+        return tables.killOrder[type];
+    }
+
+    /**
+     * @param type
+     * @return the built-in constant with the given id, or null if the type was defined at runtime
+     */
+    public static MonsterType toMonsterType(int type){
+        return type < BUILT_IN_TYPES.length ? BUILT_IN_TYPES[type] : null;
+    }
+
+    /**
+     * @param weapon
+     * @return the built-in constant with the given id, or null if the weapon was defined at runtime
+     */
+    public static Weapon toWeapon(int weapon){
+        return weapon < BUILT_IN_WEAPONS.length ? BUILT_IN_WEAPONS[weapon] : null;
+    }
+}